@@ -0,0 +1,96 @@
+package su.ezhidze.libapi.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import su.ezhidze.libapi.LibApiApplication;
+import su.ezhidze.libapi.dto.BookDto;
+import su.ezhidze.libapi.dto.BulkResultDto;
+import su.ezhidze.libapi.entity.Author;
+import su.ezhidze.libapi.entity.Book;
+import su.ezhidze.libapi.service.AuthorService;
+import su.ezhidze.libapi.service.BookService;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Service calls against the full application context on an in-memory H2 database, one transaction per
+ * call as in production. The author benchmark adds and removes the same author so the data set stays
+ * fixed across iterations.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BookServiceBenchmark {
+
+    private static final int BOOKS = 1000;
+
+    private ConfigurableApplicationContext context;
+
+    private BookService bookService;
+
+    private List<Long> bookIds;
+
+    private long authorId;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = new SpringApplicationBuilder(LibApiApplication.class)
+                .web(WebApplicationType.NONE)
+                .properties("spring.datasource.url=jdbc:h2:mem:jmh;MODE=MySQL;DB_CLOSE_DELAY=-1",
+                        "spring.datasource.driver-class-name=org.h2.Driver",
+                        "spring.jpa.hibernate.ddl-auto=create-drop",
+                        "logging.level.root=WARN")
+                .run();
+        bookService = context.getBean(BookService.class);
+        Author author = new Author();
+        author.setName("Benchmark author");
+        authorId = context.getBean(AuthorService.class).create(author).getId();
+        List<BookDto> dtos = new ArrayList<>(BOOKS);
+        for (int i = 0; i < BOOKS; i++) {
+            dtos.add(new BookDto(null, "Book " + i, 2000 + i % 25, isbn(i), 100 + i, null, null));
+        }
+        bookIds = bookService.bulkCreate(dtos).stream().map(BulkResultDto::getId).toList();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public Book read() {
+        return bookService.read(bookIds.get(ThreadLocalRandom.current().nextInt(BOOKS)));
+    }
+
+    @Benchmark
+    public Book getBookByIsbn() {
+        return bookService.getBookByIsbn(isbn(ThreadLocalRandom.current().nextInt(BOOKS)));
+    }
+
+    @Benchmark
+    public Book addAndRemoveAuthor() {
+        Long bookId = bookIds.get(ThreadLocalRandom.current().nextInt(BOOKS));
+        bookService.addAuthorToBook(bookId, authorId);
+        return bookService.removeAuthorFromBook(bookId, authorId);
+    }
+
+    // Valid ISBN-13s so lookups take the normalized isbn13 path
+    private static String isbn(int i) {
+        long prefix = 978000000000L + i;
+        int sum = 0;
+        long rest = prefix;
+        for (int position = 11; position >= 0; position--) {
+            sum += (int) (rest % 10) * (position % 2 == 0 ? 1 : 3);
+            rest /= 10;
+        }
+        return String.valueOf(prefix * 10 + (10 - sum % 10) % 10);
+    }
+}
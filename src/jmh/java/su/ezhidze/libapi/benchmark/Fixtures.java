@@ -0,0 +1,28 @@
+package su.ezhidze.libapi.benchmark;
+
+import su.ezhidze.libapi.entity.Author;
+import su.ezhidze.libapi.entity.Book;
+
+final class Fixtures {
+
+    private Fixtures() {
+    }
+
+    static Book book(long id, int authors) {
+        Book book = new Book();
+        book.setId(id);
+        book.setTitle("The Pragmatic Programmer: From Journeyman to Master");
+        book.setPublicationYear(1999);
+        book.setIsbn("978-0-201-61622-4");
+        book.setPageCount(352);
+        for (long authorId = 1; authorId <= authors; authorId++) {
+            Author author = new Author();
+            author.setId(authorId);
+            author.setName("Author " + authorId);
+            author.setBiography("Biography of author " + authorId);
+            author.getBooks().add(book);
+            book.getAuthors().add(author);
+        }
+        return book;
+    }
+}
@@ -0,0 +1,52 @@
+package su.ezhidze.libapi.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import org.openjdk.jmh.annotations.*;
+import su.ezhidze.libapi.dto.AuthorDto;
+import su.ezhidze.libapi.dto.BookDto;
+import su.ezhidze.libapi.entity.Book;
+import su.ezhidze.libapi.service.DtoMapper;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JsonBenchmark {
+
+    private final ObjectMapper objectMapper = JsonMapper.builder().findAndAddModules().build();
+
+    private BookDto bookDto;
+
+    private AuthorDto authorDto;
+
+    private byte[] bookJson;
+
+    @Setup
+    public void setUp() throws IOException {
+        Book book = Fixtures.book(1L, 5);
+        bookDto = DtoMapper.toDto(book);
+        authorDto = DtoMapper.toDto(book.getAuthors().iterator().next());
+        bookJson = objectMapper.writeValueAsBytes(bookDto);
+    }
+
+    @Benchmark
+    public byte[] writeBookDto() throws IOException {
+        return objectMapper.writeValueAsBytes(bookDto);
+    }
+
+    @Benchmark
+    public byte[] writeAuthorDto() throws IOException {
+        return objectMapper.writeValueAsBytes(authorDto);
+    }
+
+    @Benchmark
+    public BookDto readBookDto() throws IOException {
+        return objectMapper.readValue(bookJson, BookDto.class);
+    }
+}
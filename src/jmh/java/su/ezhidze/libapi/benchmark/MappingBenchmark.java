@@ -0,0 +1,41 @@
+package su.ezhidze.libapi.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import su.ezhidze.libapi.dto.BookDto;
+import su.ezhidze.libapi.entity.Book;
+import su.ezhidze.libapi.entity.Publisher;
+import su.ezhidze.libapi.service.DtoMapper;
+
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MappingBenchmark {
+
+    private Book book;
+
+    private BookDto bookDto;
+
+    @Setup
+    public void setUp() {
+        book = Fixtures.book(1L, 5);
+        Publisher publisher = new Publisher();
+        publisher.setId(1L);
+        book.setPublisher(publisher);
+        bookDto = DtoMapper.toDto(book);
+    }
+
+    @Benchmark
+    public BookDto bookToDto() {
+        return DtoMapper.toDto(book);
+    }
+
+    @Benchmark
+    public Book dtoToBook() {
+        return DtoMapper.toBook(bookDto);
+    }
+}
@@ -0,0 +1,105 @@
+package su.ezhidze.libapi.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import com.fasterxml.jackson.dataformat.cbor.databind.CBORMapper;
+import com.fasterxml.jackson.dataformat.smile.databind.SmileMapper;
+import org.openjdk.jmh.annotations.*;
+import su.ezhidze.libapi.dto.BookDto;
+import su.ezhidze.libapi.service.DtoMapper;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Encoding cost and bytes on the wire for the response formats the API negotiates: a page of book DTOs and
+ * a large author id array, in JSON, Smile and CBOR, each plain and gzip-compressed as Tomcat would send
+ * them. The sizes benchmark reports the encoded sizes as the secondary results pageBytes and idsBytes.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class WireFormatBenchmark {
+
+    private static final int PAGE_SIZE = 100;
+
+    private static final int IDS = 10000;
+
+    @Param({"json", "smile", "cbor"})
+    private String format;
+
+    @Param({"false", "true"})
+    private boolean gzip;
+
+    private ObjectMapper mapper;
+
+    private List<BookDto> page;
+
+    private long[] ids;
+
+    private byte[] encodedPage;
+
+    @Setup
+    public void setUp() throws IOException {
+        mapper = switch (format) {
+            case "smile" -> SmileMapper.builder().findAndAddModules().build();
+            case "cbor" -> CBORMapper.builder().findAndAddModules().build();
+            default -> JsonMapper.builder().findAndAddModules().build();
+        };
+        page = new ArrayList<>(PAGE_SIZE);
+        for (long id = 1; id <= PAGE_SIZE; id++) page.add(DtoMapper.toDto(Fixtures.book(id, 3)));
+        ids = new long[IDS];
+        for (int i = 0; i < IDS; i++) ids[i] = 1_000_000L + i * 7L;
+        encodedPage = mapper.writeValueAsBytes(page);
+    }
+
+    // EVENTS counters are summed over threads and iterations, so the assigned sizes are measured exactly once
+    @Benchmark
+    @Warmup(iterations = 0)
+    @Measurement(iterations = 1)
+    @Threads(1)
+    public void sizes(EncodedSizes sizes) throws IOException {
+        sizes.pageBytes = writePage().length;
+        sizes.idsBytes = writeIds().length;
+    }
+
+    @Benchmark
+    public byte[] writePage() throws IOException {
+        return encode(page);
+    }
+
+    @Benchmark
+    public byte[] writeIds() throws IOException {
+        return encode(ids);
+    }
+
+    @Benchmark
+    public BookDto[] readPage() throws IOException {
+        return mapper.readValue(encodedPage, BookDto[].class);
+    }
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class EncodedSizes {
+
+        public long pageBytes;
+
+        public long idsBytes;
+    }
+
+    private byte[] encode(Object value) throws IOException {
+        if (!gzip) return mapper.writeValueAsBytes(value);
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (GZIPOutputStream out = new GZIPOutputStream(bytes)) {
+            mapper.writeValue(out, value);
+        }
+        return bytes.toByteArray();
+    }
+}
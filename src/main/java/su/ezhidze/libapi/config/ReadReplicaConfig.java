@@ -0,0 +1,73 @@
+package su.ezhidze.libapi.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.metrics.micrometer.MicrometerMetricsTrackerFactory;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.boot.jdbc.DataSourceBuilder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.core.env.Environment;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import su.ezhidze.libapi.datasource.ReplicaRoutingDataSource;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+@Configuration
+@ConditionalOnProperty(name = "libapi.read-replicas.enabled", havingValue = "true")
+public class ReadReplicaConfig {
+
+    @Bean(destroyMethod = "close")
+    public ReplicaRoutingDataSource replicaRoutingDataSource(DataSourceProperties properties,
+                                                             Environment environment,
+                                                             MeterRegistry meterRegistry,
+                                                             @Value("${libapi.read-replicas.urls:}") List<String> urls,
+                                                             @Value("${libapi.read-replicas.max-lag:5s}") Duration maxLag,
+                                                             @Value("${libapi.read-replicas.check-interval:5s}") Duration checkInterval,
+                                                             @Value("${libapi.read-replicas.lag-query:SHOW REPLICA STATUS}") String lagQuery) {
+        HikariDataSource primary = pool(properties.determineUrl(), ReplicaRoutingDataSource.PRIMARY, properties, environment, meterRegistry);
+        Map<String, DataSource> replicas = new LinkedHashMap<>();
+        for (String url : urls) {
+            if (url.isBlank()) continue;
+            String name = "replica-" + replicas.size();
+            HikariDataSource replica = pool(url.trim(), name, properties, environment, meterRegistry);
+            replica.setReadOnly(true);
+            replicas.put(name, replica);
+        }
+        ReplicaRoutingDataSource routing = new ReplicaRoutingDataSource(primary, replicas, maxLag, lagQuery, meterRegistry);
+        routing.start(checkInterval);
+        return routing;
+    }
+
+    @Bean
+    @Primary
+    public DataSource dataSource(ReplicaRoutingDataSource replicaRoutingDataSource) {
+        return new LazyConnectionDataSourceProxy(replicaRoutingDataSource);
+    }
+
+    // Every pool takes the spring.datasource credentials and spring.datasource.hikari settings, and reports
+    // hikaricp.* metrics under its own pool name.
+    private static HikariDataSource pool(String url, String name, DataSourceProperties properties,
+                                         Environment environment, MeterRegistry meterRegistry) {
+        HikariDataSource pool = DataSourceBuilder.create(properties.getClassLoader())
+                .type(HikariDataSource.class)
+                .driverClassName(properties.determineDriverClassName())
+                .url(url)
+                .username(properties.determineUsername())
+                .password(properties.determinePassword())
+                .build();
+        Binder.get(environment).bind("spring.datasource.hikari", Bindable.ofInstance(pool));
+        pool.setPoolName(name);
+        pool.setMetricsTrackerFactory(new MicrometerMetricsTrackerFactory(meterRegistry));
+        return pool;
+    }
+}
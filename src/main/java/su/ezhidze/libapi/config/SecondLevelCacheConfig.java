@@ -0,0 +1,81 @@
+package su.ezhidze.libapi.config;
+
+import com.github.benmanes.caffeine.jcache.configuration.CaffeineConfiguration;
+import com.github.benmanes.caffeine.jcache.spi.CaffeineCachingProvider;
+import org.hibernate.cache.jcache.ConfigSettings;
+import org.hibernate.cfg.AvailableSettings;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import javax.cache.CacheManager;
+import javax.cache.Caching;
+import javax.cache.spi.CachingProvider;
+import java.net.URI;
+import java.time.Duration;
+import java.util.List;
+import java.util.OptionalLong;
+
+@Configuration
+@ConditionalOnProperty(name = "libapi.cache.enabled", havingValue = "true")
+public class SecondLevelCacheConfig {
+
+    public static final String BOOK_REGION = "book";
+
+    public static final String AUTHOR_REGION = "author";
+
+    public static final String PUBLISHER_REGION = "publisher";
+
+    public static final String BOOK_AUTHORS_REGION = "book.authors";
+
+    public static final String AUTHOR_BOOKS_REGION = "author.books";
+
+    public static final String PUBLISHER_BOOKS_REGION = "publisher.books";
+
+    public static final String QUERY_RESULTS_REGION = "default-query-results-region";
+
+    public static final String UPDATE_TIMESTAMPS_REGION = "default-update-timestamps-region";
+
+    private static final List<String> BOUNDED_REGIONS = List.of(BOOK_REGION, AUTHOR_REGION, PUBLISHER_REGION,
+            BOOK_AUTHORS_REGION, AUTHOR_BOOKS_REGION, PUBLISHER_BOOKS_REGION, QUERY_RESULTS_REGION);
+
+    @Bean(destroyMethod = "close")
+    public CacheManager hibernateCacheManager(@Value("${libapi.cache.maximum-size:100000}") long maximumSize,
+                                              @Value("${libapi.cache.ttl:10m}") Duration ttl) {
+        CachingProvider provider = Caching.getCachingProvider(CaffeineCachingProvider.class.getName());
+        CacheManager cacheManager = provider.getCacheManager(URI.create("libapi-hibernate"), getClass().getClassLoader());
+        for (String region : BOUNDED_REGIONS) {
+            if (cacheManager.getCache(region) == null) cacheManager.createCache(region, bounded(maximumSize, ttl));
+        }
+        // Update timestamps must outlive every cached query result, so this region is never evicted.
+        if (cacheManager.getCache(UPDATE_TIMESTAMPS_REGION) == null) {
+            CaffeineConfiguration<Object, Object> timestamps = new CaffeineConfiguration<>();
+            timestamps.setStatisticsEnabled(true);
+            cacheManager.createCache(UPDATE_TIMESTAMPS_REGION, timestamps);
+        }
+        return cacheManager;
+    }
+
+    @Bean
+    public HibernatePropertiesCustomizer secondLevelCacheCustomizer(CacheManager hibernateCacheManager) {
+        return properties -> {
+            properties.put(AvailableSettings.USE_SECOND_LEVEL_CACHE, true);
+            properties.put(AvailableSettings.USE_QUERY_CACHE, true);
+            properties.put(AvailableSettings.CACHE_REGION_FACTORY, "jcache");
+            properties.put(AvailableSettings.AUTO_EVICT_COLLECTION_CACHE, true);
+            properties.put(AvailableSettings.GENERATE_STATISTICS, true);
+            properties.put(ConfigSettings.CACHE_MANAGER, hibernateCacheManager);
+            properties.put(ConfigSettings.MISSING_CACHE_STRATEGY, "create-warn");
+        };
+    }
+
+    private static CaffeineConfiguration<Object, Object> bounded(long maximumSize, Duration ttl) {
+        CaffeineConfiguration<Object, Object> configuration = new CaffeineConfiguration<>();
+        configuration.setMaximumSize(OptionalLong.of(maximumSize));
+        configuration.setExpireAfterWrite(OptionalLong.of(ttl.toNanos()));
+        configuration.setStatisticsEnabled(true);
+        return configuration;
+    }
+}
@@ -1,17 +1,22 @@
 package su.ezhidze.libapi.controller;
 
 import jakarta.validation.Valid;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import su.ezhidze.libapi.dto.BatchRequestDto;
 import su.ezhidze.libapi.dto.AuthorDto;
 import su.ezhidze.libapi.entity.Author;
-import su.ezhidze.libapi.entity.Book;
 import su.ezhidze.libapi.exception.ExceptionBodyBuilder;
+import su.ezhidze.libapi.exception.PreconditionFailedException;
 import su.ezhidze.libapi.service.AuthorService;
-
-import java.util.Set;
-import java.util.stream.Collectors;
+import su.ezhidze.libapi.service.DtoMapper;
+import su.ezhidze.libapi.service.FieldSelection;
+import su.ezhidze.libapi.service.SuggestionService;
+import su.ezhidze.libapi.service.SyncService;
+import su.ezhidze.libapi.util.ETags;
 
 @RestController
 @RequestMapping("/api/authors")
@@ -19,26 +24,92 @@ public class AuthorController {
 
     private final AuthorService authorService;
 
-    public AuthorController(AuthorService authorService) {
+    private final SuggestionService suggestionService;
+
+    private final SyncService syncService;
+
+    public AuthorController(AuthorService authorService, SuggestionService suggestionService, SyncService syncService) {
         this.authorService = authorService;
+        this.suggestionService = suggestionService;
+        this.syncService = syncService;
     }
 
     @PostMapping
     public ResponseEntity createAuthor(@Valid @RequestBody AuthorDto authorDto) {
         try {
-            Author author = convertDtoToAuthor(authorDto);
+            Author author = DtoMapper.toAuthor(authorDto);
             Author saved = authorService.create(author);
-            return new ResponseEntity<>(convertAuthorToDto(saved), HttpStatus.CREATED);
+            return new ResponseEntity<>(DtoMapper.toDto(saved), HttpStatus.CREATED);
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body(ExceptionBodyBuilder.build(HttpStatus.BAD_REQUEST.value(), e.getMessage()));
+        }
+    }
+
+    @PostMapping("/batch")
+    public ResponseEntity getAuthorsBatch(@RequestBody BatchRequestDto request) {
+        try {
+            return ResponseEntity.ok(authorService.readBatch(request));
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body(ExceptionBodyBuilder.build(HttpStatus.BAD_REQUEST.value(), e.getMessage()));
+        }
+    }
+
+    @GetMapping
+    public ResponseEntity listAuthors(@RequestParam(defaultValue = "id") String sort,
+                                      @RequestParam(required = false) String cursor,
+                                      @RequestParam(defaultValue = "20") int limit,
+                                      @RequestParam(required = false) String fields,
+                                      @RequestParam(required = false) String expand) {
+        try {
+            FieldSelection selection = FieldSelection.parse(fields, expand, AuthorService.FIELDS, AuthorService.EXPANDS);
+            if (!selection.isDefault()) {
+                return ResponseEntity.ok(authorService.listSparse(sort, cursor, limit, selection));
+            }
+            return ResponseEntity.ok(authorService.list(sort, cursor, limit));
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body(ExceptionBodyBuilder.build(HttpStatus.BAD_REQUEST.value(), e.getMessage()));
+        }
+    }
+
+    @GetMapping("/changes")
+    public ResponseEntity getAuthorChanges(@RequestParam(required = false) String since,
+                                           @RequestParam(required = false) String cursor,
+                                           @RequestParam(defaultValue = "500") int limit) {
+        try {
+            return ResponseEntity.ok(syncService.authors(since, cursor, limit));
         } catch (Exception e) {
             return ResponseEntity.badRequest().body(ExceptionBodyBuilder.build(HttpStatus.BAD_REQUEST.value(), e.getMessage()));
         }
     }
 
     @GetMapping("/{id}")
-    public ResponseEntity getAuthorById(@PathVariable Long id) {
+    public ResponseEntity getAuthorById(@PathVariable Long id,
+                                        @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch,
+                                        @RequestParam(required = false) String fields,
+                                        @RequestParam(required = false) String expand) {
         try {
+            // Sparse and expanded responses are separate representations and carry no ETag
+            FieldSelection selection = FieldSelection.parse(fields, expand, AuthorService.FIELDS, AuthorService.EXPANDS);
+            if (!selection.isDefault()) {
+                return ResponseEntity.ok(authorService.readSparse(id, selection));
+            }
+            if (ifNoneMatch != null) {
+                long version = authorService.getVersion(id);
+                if (ETags.noneMatchHits(ifNoneMatch, version)) {
+                    return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(ETags.of(version)).build();
+                }
+            }
             Author author = authorService.read(id);
-            return ResponseEntity.ok(convertAuthorToDto(author));
+            return ResponseEntity.ok().eTag(ETags.of(author.getVersion())).body(DtoMapper.toDto(author));
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body(ExceptionBodyBuilder.build(HttpStatus.BAD_REQUEST.value(), e.getMessage()));
+        }
+    }
+
+    @GetMapping("/suggest")
+    public ResponseEntity suggestAuthors(@RequestParam String prefix, @RequestParam(defaultValue = "10") int limit) {
+        try {
+            return ResponseEntity.ok(suggestionService.suggestAuthors(prefix, limit));
         } catch (Exception e) {
             return ResponseEntity.badRequest().body(ExceptionBodyBuilder.build(HttpStatus.BAD_REQUEST.value(), e.getMessage()));
         }
@@ -48,27 +119,41 @@ public class AuthorController {
     public ResponseEntity getAuthorByName(@PathVariable String name) {
         try {
             Author author = authorService.getAuthorByName(name);
-            return ResponseEntity.ok(convertAuthorToDto(author));
+            return ResponseEntity.ok(DtoMapper.toDto(author));
         } catch (Exception e) {
             return ResponseEntity.badRequest().body(ExceptionBodyBuilder.build(HttpStatus.BAD_REQUEST.value(), e.getMessage()));
         }
     }
 
     @PutMapping("/{id}")
-    public ResponseEntity updateAuthor(@PathVariable Long id, @Valid @RequestBody AuthorDto authorDto) {
+    public ResponseEntity updateAuthor(@PathVariable Long id, @Valid @RequestBody AuthorDto authorDto,
+                                       @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
         try {
-            Author updated = authorService.update(id, convertDtoToAuthor(authorDto));
-            return ResponseEntity.ok(convertAuthorToDto(updated));
+            Author updated = authorService.update(id, DtoMapper.toAuthor(authorDto), ETags.ifMatchVersion(ifMatch));
+            return ResponseEntity.ok().eTag(ETags.of(updated.getVersion())).body(DtoMapper.toDto(updated));
+        } catch (PreconditionFailedException e) {
+            return ResponseEntity.status(HttpStatus.PRECONDITION_FAILED)
+                    .body(ExceptionBodyBuilder.build(HttpStatus.PRECONDITION_FAILED.value(), e.getMessage()));
+        } catch (OptimisticLockingFailureException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT)
+                    .body(ExceptionBodyBuilder.build(HttpStatus.CONFLICT.value(), e.getMessage()));
         } catch (Exception e) {
             return ResponseEntity.badRequest().body(ExceptionBodyBuilder.build(HttpStatus.BAD_REQUEST.value(), e.getMessage()));
         }
     }
 
     @DeleteMapping("/{id}")
-    public ResponseEntity deleteAuthor(@PathVariable Long id) {
+    public ResponseEntity deleteAuthor(@PathVariable Long id,
+                                       @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
         try {
-            authorService.delete(id);
+            authorService.delete(id, ETags.ifMatchVersion(ifMatch));
             return ResponseEntity.noContent().build();
+        } catch (PreconditionFailedException e) {
+            return ResponseEntity.status(HttpStatus.PRECONDITION_FAILED)
+                    .body(ExceptionBodyBuilder.build(HttpStatus.PRECONDITION_FAILED.value(), e.getMessage()));
+        } catch (OptimisticLockingFailureException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT)
+                    .body(ExceptionBodyBuilder.build(HttpStatus.CONFLICT.value(), e.getMessage()));
         } catch (Exception e) {
             return ResponseEntity.badRequest().body(ExceptionBodyBuilder.build(HttpStatus.BAD_REQUEST.value(), e.getMessage()));
         }
@@ -77,9 +162,7 @@ public class AuthorController {
     @GetMapping("/{id}/books")
     public ResponseEntity getBooksByAuthor(@PathVariable Long id) {
         try {
-            Set<Book> books = authorService.getBooksByAuthor(id);
-            Set<Long> bookIds = books.stream().map(Book::getId).collect(Collectors.toSet());
-            return ResponseEntity.ok(bookIds);
+            return ResponseEntity.ok(authorService.getBookIdsByAuthor(id));
         } catch (Exception e) {
             return ResponseEntity.badRequest().body(ExceptionBodyBuilder.build(HttpStatus.BAD_REQUEST.value(), e.getMessage()));
         }
@@ -89,7 +172,7 @@ public class AuthorController {
     public ResponseEntity addBookToAuthor(@PathVariable Long authorId, @PathVariable Long bookId) {
         try {
             Author author = authorService.addBookToAuthor(authorId, bookId);
-            return ResponseEntity.ok(convertAuthorToDto(author));
+            return ResponseEntity.ok(DtoMapper.toDto(author));
         } catch (Exception e) {
             return ResponseEntity.badRequest().body(ExceptionBodyBuilder.build(HttpStatus.BAD_REQUEST.value(), e.getMessage()));
         }
@@ -99,23 +182,9 @@ public class AuthorController {
     public ResponseEntity removeBookFromAuthor(@PathVariable Long authorId, @PathVariable Long bookId) {
         try {
             Author author = authorService.removeBookFromAuthor(authorId, bookId);
-            return ResponseEntity.ok(convertAuthorToDto(author));
+            return ResponseEntity.ok(DtoMapper.toDto(author));
         } catch (Exception e) {
             return ResponseEntity.badRequest().body(ExceptionBodyBuilder.build(HttpStatus.BAD_REQUEST.value(), e.getMessage()));
         }
     }
-
-    private AuthorDto convertAuthorToDto(Author author) {
-        Set<Long> bookIds = author.getBooks().stream()
-                .map(Book::getId)
-                .collect(Collectors.toSet());
-        return new AuthorDto(author.getId(), author.getName(), author.getBiography(), bookIds);
-    }
-
-    private Author convertDtoToAuthor(AuthorDto dto) {
-        Author author = new Author();
-        author.setName(dto.getName());
-        author.setBiography(dto.getBiography());
-        return author;
-    }
 }
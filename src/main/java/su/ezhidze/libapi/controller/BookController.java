@@ -1,17 +1,25 @@
 package su.ezhidze.libapi.controller;
 
 import jakarta.validation.Valid;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import su.ezhidze.libapi.dto.BatchRequestDto;
+import su.ezhidze.libapi.dto.BookAuthorsDto;
 import su.ezhidze.libapi.dto.BookDto;
-import su.ezhidze.libapi.entity.Author;
 import su.ezhidze.libapi.entity.Book;
 import su.ezhidze.libapi.exception.ExceptionBodyBuilder;
+import su.ezhidze.libapi.exception.PreconditionFailedException;
 import su.ezhidze.libapi.service.BookService;
+import su.ezhidze.libapi.service.DtoMapper;
+import su.ezhidze.libapi.service.FieldSelection;
+import su.ezhidze.libapi.service.SyncService;
+import su.ezhidze.libapi.util.ETags;
 
+import java.util.List;
 import java.util.Set;
-import java.util.stream.Collectors;
 
 @RestController
 @RequestMapping("/api/books")
@@ -19,26 +27,89 @@ public class BookController {
 
     private final BookService bookService;
 
-    public BookController(BookService bookService) {
+    private final SyncService syncService;
+
+    public BookController(BookService bookService, SyncService syncService) {
         this.bookService = bookService;
+        this.syncService = syncService;
     }
 
     @PostMapping
     public ResponseEntity createBook(@Valid @RequestBody BookDto bookDto) {
         try {
-            Book book = convertDtoToBook(bookDto);
+            Book book = DtoMapper.toBook(bookDto);
             Book saved = bookService.create(book);
-            return new ResponseEntity<>(convertBookToDto(saved), HttpStatus.CREATED);
+            return new ResponseEntity<>(DtoMapper.toDto(saved), HttpStatus.CREATED);
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body(ExceptionBodyBuilder.build(HttpStatus.BAD_REQUEST.value(), e.getMessage()));
+        }
+    }
+
+    @PostMapping("/bulk")
+    public ResponseEntity createBooks(@RequestBody List<BookDto> bookDtos) {
+        try {
+            return ResponseEntity.ok(bookService.bulkCreate(bookDtos));
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body(ExceptionBodyBuilder.build(HttpStatus.BAD_REQUEST.value(), e.getMessage()));
+        }
+    }
+
+    @PostMapping("/batch")
+    public ResponseEntity getBooksBatch(@RequestBody BatchRequestDto request) {
+        try {
+            return ResponseEntity.ok(bookService.readBatch(request));
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body(ExceptionBodyBuilder.build(HttpStatus.BAD_REQUEST.value(), e.getMessage()));
+        }
+    }
+
+    @GetMapping
+    public ResponseEntity listBooks(@RequestParam(defaultValue = "id") String sort,
+                                    @RequestParam(required = false) String cursor,
+                                    @RequestParam(defaultValue = "20") int limit,
+                                    @RequestParam(required = false) String fields,
+                                    @RequestParam(required = false) String expand) {
+        try {
+            FieldSelection selection = FieldSelection.parse(fields, expand, BookService.FIELDS, BookService.EXPANDS);
+            if (!selection.isDefault()) {
+                return ResponseEntity.ok(bookService.listSparse(sort, cursor, limit, selection));
+            }
+            return ResponseEntity.ok(bookService.list(sort, cursor, limit));
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body(ExceptionBodyBuilder.build(HttpStatus.BAD_REQUEST.value(), e.getMessage()));
+        }
+    }
+
+    @GetMapping("/changes")
+    public ResponseEntity getBookChanges(@RequestParam(required = false) String since,
+                                         @RequestParam(required = false) String cursor,
+                                         @RequestParam(defaultValue = "500") int limit) {
+        try {
+            return ResponseEntity.ok(syncService.books(since, cursor, limit));
         } catch (Exception e) {
             return ResponseEntity.badRequest().body(ExceptionBodyBuilder.build(HttpStatus.BAD_REQUEST.value(), e.getMessage()));
         }
     }
 
     @GetMapping("/{id}")
-    public ResponseEntity getBookById(@PathVariable Long id) {
+    public ResponseEntity getBookById(@PathVariable Long id,
+                                      @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch,
+                                      @RequestParam(required = false) String fields,
+                                      @RequestParam(required = false) String expand) {
         try {
+            // Sparse and expanded responses are separate representations and carry no ETag
+            FieldSelection selection = FieldSelection.parse(fields, expand, BookService.FIELDS, BookService.EXPANDS);
+            if (!selection.isDefault()) {
+                return ResponseEntity.ok(bookService.readSparse(id, selection));
+            }
+            if (ifNoneMatch != null) {
+                long version = bookService.getVersion(id);
+                if (ETags.noneMatchHits(ifNoneMatch, version)) {
+                    return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(ETags.of(version)).build();
+                }
+            }
             Book book = bookService.read(id);
-            return ResponseEntity.ok(convertBookToDto(book));
+            return ResponseEntity.ok().eTag(ETags.of(book.getVersion())).body(DtoMapper.toDto(book));
         } catch (Exception e) {
             return ResponseEntity.badRequest().body(ExceptionBodyBuilder.build(HttpStatus.BAD_REQUEST.value(), e.getMessage()));
         }
@@ -48,28 +119,41 @@ public class BookController {
     public ResponseEntity getBookByIsbn(@PathVariable String isbn) {
         try {
             Book book = bookService.getBookByIsbn(isbn);
-            return ResponseEntity.ok(convertBookToDto(book));
+            return ResponseEntity.ok(DtoMapper.toDto(book));
         } catch (Exception e) {
             return ResponseEntity.badRequest().body(ExceptionBodyBuilder.build(HttpStatus.BAD_REQUEST.value(), e.getMessage()));
         }
     }
 
     @PutMapping("/{id}")
-    public ResponseEntity updateBook(@PathVariable Long id, @Valid @RequestBody BookDto bookDto) {
+    public ResponseEntity updateBook(@PathVariable Long id, @Valid @RequestBody BookDto bookDto,
+                                     @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
         try {
-            Book book = convertDtoToBook(bookDto);
-            Book updated = bookService.update(id, book);
-            return ResponseEntity.ok(convertBookToDto(updated));
+            Book updated = bookService.update(id, DtoMapper.toBook(bookDto), ETags.ifMatchVersion(ifMatch));
+            return ResponseEntity.ok().eTag(ETags.of(updated.getVersion())).body(DtoMapper.toDto(updated));
+        } catch (PreconditionFailedException e) {
+            return ResponseEntity.status(HttpStatus.PRECONDITION_FAILED)
+                    .body(ExceptionBodyBuilder.build(HttpStatus.PRECONDITION_FAILED.value(), e.getMessage()));
+        } catch (OptimisticLockingFailureException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT)
+                    .body(ExceptionBodyBuilder.build(HttpStatus.CONFLICT.value(), e.getMessage()));
         } catch (Exception e) {
             return ResponseEntity.badRequest().body(ExceptionBodyBuilder.build(HttpStatus.BAD_REQUEST.value(), e.getMessage()));
         }
     }
 
     @DeleteMapping("/{id}")
-    public ResponseEntity deleteBook(@PathVariable Long id) {
+    public ResponseEntity deleteBook(@PathVariable Long id,
+                                     @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
         try {
-            bookService.delete(id);
+            bookService.delete(id, ETags.ifMatchVersion(ifMatch));
             return ResponseEntity.noContent().build();
+        } catch (PreconditionFailedException e) {
+            return ResponseEntity.status(HttpStatus.PRECONDITION_FAILED)
+                    .body(ExceptionBodyBuilder.build(HttpStatus.PRECONDITION_FAILED.value(), e.getMessage()));
+        } catch (OptimisticLockingFailureException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT)
+                    .body(ExceptionBodyBuilder.build(HttpStatus.CONFLICT.value(), e.getMessage()));
         } catch (Exception e) {
             return ResponseEntity.badRequest().body(ExceptionBodyBuilder.build(HttpStatus.BAD_REQUEST.value(), e.getMessage()));
         }
@@ -78,9 +162,17 @@ public class BookController {
     @GetMapping("/{id}/authors")
     public ResponseEntity getBookAuthors(@PathVariable Long id) {
         try {
-            Set<Author> authors = bookService.getBookAuthors(id);
-            Set<Long> authorIds = authors.stream().map(Author::getId).collect(Collectors.toSet());
-            return ResponseEntity.ok(authorIds);
+            return ResponseEntity.ok(bookService.getAuthorIds(id));
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body(ExceptionBodyBuilder.build(HttpStatus.BAD_REQUEST.value(), e.getMessage()));
+        }
+    }
+
+    @PutMapping("/{id}/authors")
+    public ResponseEntity replaceBookAuthors(@PathVariable Long id, @RequestBody Set<Long> authorIds) {
+        try {
+            BookAuthorsDto replaced = bookService.replaceAuthors(id, authorIds);
+            return ResponseEntity.ok().eTag(ETags.of(replaced.getVersion())).body(replaced.getAuthorIds());
         } catch (Exception e) {
             return ResponseEntity.badRequest().body(ExceptionBodyBuilder.build(HttpStatus.BAD_REQUEST.value(), e.getMessage()));
         }
@@ -90,7 +182,7 @@ public class BookController {
     public ResponseEntity addAuthorToBook(@PathVariable Long bookId, @PathVariable Long authorId) {
         try {
             Book book = bookService.addAuthorToBook(bookId, authorId);
-            return ResponseEntity.ok(convertBookToDto(book));
+            return ResponseEntity.ok(DtoMapper.toDto(book));
         } catch (Exception e) {
             return ResponseEntity.badRequest().body(ExceptionBodyBuilder.build(HttpStatus.BAD_REQUEST.value(), e.getMessage()));
         }
@@ -100,7 +192,7 @@ public class BookController {
     public ResponseEntity removeAuthorFromBook(@PathVariable Long bookId, @PathVariable Long authorId) {
         try {
             Book book = bookService.removeAuthorFromBook(bookId, authorId);
-            return ResponseEntity.ok(convertBookToDto(book));
+            return ResponseEntity.ok(DtoMapper.toDto(book));
         } catch (Exception e) {
             return ResponseEntity.badRequest().body(ExceptionBodyBuilder.build(HttpStatus.BAD_REQUEST.value(), e.getMessage()));
         }
@@ -110,24 +202,9 @@ public class BookController {
     public ResponseEntity setPublisherForBook(@PathVariable Long bookId, @PathVariable Long publisherId) {
         try {
             Book book = bookService.setPublisher(bookId, publisherId);
-            return ResponseEntity.ok(convertBookToDto(book));
+            return ResponseEntity.ok(DtoMapper.toDto(book));
         } catch (Exception e) {
             return ResponseEntity.badRequest().body(ExceptionBodyBuilder.build(HttpStatus.BAD_REQUEST.value(), e.getMessage()));
         }
     }
-
-    private BookDto convertBookToDto(Book book) {
-        Long publisherId = (book.getPublisher() != null) ? book.getPublisher().getId() : null;
-        Set<Long> authorIds = book.getAuthors().stream().map(Author::getId).collect(Collectors.toSet());
-        return new BookDto(book.getId(), book.getTitle(), book.getPublicationYear(), book.getIsbn(), book.getPageCount(), publisherId, authorIds);
-    }
-
-    private Book convertDtoToBook(BookDto dto) {
-        Book book = new Book();
-        book.setTitle(dto.getTitle());
-        book.setPublicationYear(dto.getPublicationYear());
-        book.setIsbn(dto.getIsbn());
-        book.setPageCount(dto.getPageCount());
-        return book;
-    }
 }
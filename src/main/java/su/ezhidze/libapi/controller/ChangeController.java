@@ -0,0 +1,35 @@
+package su.ezhidze.libapi.controller;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import su.ezhidze.libapi.exception.ExceptionBodyBuilder;
+import su.ezhidze.libapi.service.ChangeFeedService;
+
+@RestController
+@RequestMapping("/api/changes")
+public class ChangeController {
+
+    private final ChangeFeedService changeFeedService;
+
+    public ChangeController(ChangeFeedService changeFeedService) {
+        this.changeFeedService = changeFeedService;
+    }
+
+    @GetMapping
+    public ResponseEntity read(@RequestParam(defaultValue = "0") long after, @RequestParam(defaultValue = "500") int limit) {
+        try {
+            return ResponseEntity.ok(changeFeedService.read(after, limit));
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body(ExceptionBodyBuilder.build(HttpStatus.BAD_REQUEST.value(), e.getMessage()));
+        }
+    }
+
+    @GetMapping(value = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter stream(@RequestHeader(value = "Last-Event-ID", required = false) Long lastEventId,
+                             @RequestParam(required = false) Long after) {
+        return changeFeedService.stream(lastEventId != null ? lastEventId : after);
+    }
+}
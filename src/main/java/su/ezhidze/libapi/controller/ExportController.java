@@ -0,0 +1,44 @@
+package su.ezhidze.libapi.controller;
+
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import su.ezhidze.libapi.service.ExportService;
+
+import java.io.BufferedOutputStream;
+
+@RestController
+@RequestMapping("/api/export")
+public class ExportController {
+
+    private static final MediaType NDJSON = MediaType.parseMediaType("application/x-ndjson");
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final ExportService exportService;
+
+    public ExportController(ExportService exportService) {
+        this.exportService = exportService;
+    }
+
+    @GetMapping("/books.ndjson")
+    public ResponseEntity<StreamingResponseBody> exportBooks() {
+        return ResponseEntity.ok().contentType(NDJSON)
+                .body(out -> exportService.exportBooks(new BufferedOutputStream(out, BUFFER_SIZE)));
+    }
+
+    @GetMapping("/authors.ndjson")
+    public ResponseEntity<StreamingResponseBody> exportAuthors() {
+        return ResponseEntity.ok().contentType(NDJSON)
+                .body(out -> exportService.exportAuthors(new BufferedOutputStream(out, BUFFER_SIZE)));
+    }
+
+    @GetMapping("/publishers.ndjson")
+    public ResponseEntity<StreamingResponseBody> exportPublishers() {
+        return ResponseEntity.ok().contentType(NDJSON)
+                .body(out -> exportService.exportPublishers(new BufferedOutputStream(out, BUFFER_SIZE)));
+    }
+}
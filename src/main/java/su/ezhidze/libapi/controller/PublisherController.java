@@ -1,17 +1,21 @@
 package su.ezhidze.libapi.controller;
 
 import jakarta.validation.Valid;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import su.ezhidze.libapi.dto.BatchRequestDto;
 import su.ezhidze.libapi.dto.PublisherDto;
-import su.ezhidze.libapi.entity.Book;
 import su.ezhidze.libapi.entity.Publisher;
 import su.ezhidze.libapi.exception.ExceptionBodyBuilder;
+import su.ezhidze.libapi.exception.PreconditionFailedException;
+import su.ezhidze.libapi.service.DtoMapper;
 import su.ezhidze.libapi.service.PublisherService;
-
-import java.util.Set;
-import java.util.stream.Collectors;
+import su.ezhidze.libapi.service.SuggestionService;
+import su.ezhidze.libapi.service.SyncService;
+import su.ezhidze.libapi.util.ETags;
 
 @RestController
 @RequestMapping("/api/publishers")
@@ -19,26 +23,79 @@ public class PublisherController {
 
     private final PublisherService publisherService;
 
-    public PublisherController(PublisherService publisherService) {
+    private final SuggestionService suggestionService;
+
+    private final SyncService syncService;
+
+    public PublisherController(PublisherService publisherService, SuggestionService suggestionService, SyncService syncService) {
         this.publisherService = publisherService;
+        this.suggestionService = suggestionService;
+        this.syncService = syncService;
     }
 
     @PostMapping
     public ResponseEntity createPublisher(@Valid @RequestBody PublisherDto publisherDto) {
         try {
-            Publisher publisher = convertDtoToPublisher(publisherDto);
+            Publisher publisher = DtoMapper.toPublisher(publisherDto);
             Publisher saved = publisherService.create(publisher);
-            return new ResponseEntity<>(convertPublisherToDto(saved), HttpStatus.CREATED);
+            return new ResponseEntity<>(DtoMapper.toDto(saved), HttpStatus.CREATED);
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body(ExceptionBodyBuilder.build(HttpStatus.BAD_REQUEST.value(), e.getMessage()));
+        }
+    }
+
+    @PostMapping("/batch")
+    public ResponseEntity getPublishersBatch(@RequestBody BatchRequestDto request) {
+        try {
+            return ResponseEntity.ok(publisherService.readBatch(request));
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body(ExceptionBodyBuilder.build(HttpStatus.BAD_REQUEST.value(), e.getMessage()));
+        }
+    }
+
+    @GetMapping
+    public ResponseEntity listPublishers(@RequestParam(defaultValue = "id") String sort,
+                                         @RequestParam(required = false) String cursor,
+                                         @RequestParam(defaultValue = "20") int limit) {
+        try {
+            return ResponseEntity.ok(publisherService.list(sort, cursor, limit));
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body(ExceptionBodyBuilder.build(HttpStatus.BAD_REQUEST.value(), e.getMessage()));
+        }
+    }
+
+    @GetMapping("/changes")
+    public ResponseEntity getPublisherChanges(@RequestParam(required = false) String since,
+                                              @RequestParam(required = false) String cursor,
+                                              @RequestParam(defaultValue = "500") int limit) {
+        try {
+            return ResponseEntity.ok(syncService.publishers(since, cursor, limit));
         } catch (Exception e) {
             return ResponseEntity.badRequest().body(ExceptionBodyBuilder.build(HttpStatus.BAD_REQUEST.value(), e.getMessage()));
         }
     }
 
     @GetMapping("/{id}")
-    public ResponseEntity getPublisherById(@PathVariable Long id) {
+    public ResponseEntity getPublisherById(@PathVariable Long id,
+                                           @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
         try {
+            if (ifNoneMatch != null) {
+                long version = publisherService.getVersion(id);
+                if (ETags.noneMatchHits(ifNoneMatch, version)) {
+                    return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(ETags.of(version)).build();
+                }
+            }
             Publisher publisher = publisherService.read(id);
-            return ResponseEntity.ok(convertPublisherToDto(publisher));
+            return ResponseEntity.ok().eTag(ETags.of(publisher.getVersion())).body(DtoMapper.toDto(publisher));
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body(ExceptionBodyBuilder.build(HttpStatus.BAD_REQUEST.value(), e.getMessage()));
+        }
+    }
+
+    @GetMapping("/suggest")
+    public ResponseEntity suggestPublishers(@RequestParam String prefix, @RequestParam(defaultValue = "10") int limit) {
+        try {
+            return ResponseEntity.ok(suggestionService.suggestPublishers(prefix, limit));
         } catch (Exception e) {
             return ResponseEntity.badRequest().body(ExceptionBodyBuilder.build(HttpStatus.BAD_REQUEST.value(), e.getMessage()));
         }
@@ -48,28 +105,41 @@ public class PublisherController {
     public ResponseEntity getPublisherByName(@PathVariable String name) {
         try {
             Publisher publisher = publisherService.getPublisherByName(name);
-            return ResponseEntity.ok(convertPublisherToDto(publisher));
+            return ResponseEntity.ok(DtoMapper.toDto(publisher));
         } catch (Exception e) {
             return ResponseEntity.badRequest().body(ExceptionBodyBuilder.build(HttpStatus.BAD_REQUEST.value(), e.getMessage()));
         }
     }
 
     @PutMapping("/{id}")
-    public ResponseEntity updatePublisher(@PathVariable Long id, @Valid @RequestBody PublisherDto publisherDto) {
+    public ResponseEntity updatePublisher(@PathVariable Long id, @Valid @RequestBody PublisherDto publisherDto,
+                                          @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
         try {
-            Publisher publisher = convertDtoToPublisher(publisherDto);
-            Publisher updated = publisherService.update(id, publisher);
-            return ResponseEntity.ok(convertPublisherToDto(updated));
+            Publisher updated = publisherService.update(id, DtoMapper.toPublisher(publisherDto), ETags.ifMatchVersion(ifMatch));
+            return ResponseEntity.ok().eTag(ETags.of(updated.getVersion())).body(DtoMapper.toDto(updated));
+        } catch (PreconditionFailedException e) {
+            return ResponseEntity.status(HttpStatus.PRECONDITION_FAILED)
+                    .body(ExceptionBodyBuilder.build(HttpStatus.PRECONDITION_FAILED.value(), e.getMessage()));
+        } catch (OptimisticLockingFailureException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT)
+                    .body(ExceptionBodyBuilder.build(HttpStatus.CONFLICT.value(), e.getMessage()));
         } catch (Exception e) {
             return ResponseEntity.badRequest().body(ExceptionBodyBuilder.build(HttpStatus.BAD_REQUEST.value(), e.getMessage()));
         }
     }
 
     @DeleteMapping("/{id}")
-    public ResponseEntity deletePublisher(@PathVariable Long id) {
+    public ResponseEntity deletePublisher(@PathVariable Long id,
+                                          @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
         try {
-            publisherService.delete(id);
+            publisherService.delete(id, ETags.ifMatchVersion(ifMatch));
             return ResponseEntity.noContent().build();
+        } catch (PreconditionFailedException e) {
+            return ResponseEntity.status(HttpStatus.PRECONDITION_FAILED)
+                    .body(ExceptionBodyBuilder.build(HttpStatus.PRECONDITION_FAILED.value(), e.getMessage()));
+        } catch (OptimisticLockingFailureException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT)
+                    .body(ExceptionBodyBuilder.build(HttpStatus.CONFLICT.value(), e.getMessage()));
         } catch (Exception e) {
             return ResponseEntity.badRequest().body(ExceptionBodyBuilder.build(HttpStatus.BAD_REQUEST.value(), e.getMessage()));
         }
@@ -78,9 +148,7 @@ public class PublisherController {
     @GetMapping("/{id}/books")
     public ResponseEntity getBooksByPublisher(@PathVariable Long id) {
         try {
-            Set<Book> books = publisherService.getBooksByPublisher(id);
-            Set<Long> bookIds = books.stream().map(Book::getId).collect(Collectors.toSet());
-            return ResponseEntity.ok(bookIds);
+            return ResponseEntity.ok(publisherService.getBookIdsByPublisher(id));
         } catch (Exception e) {
             return ResponseEntity.badRequest().body(ExceptionBodyBuilder.build(HttpStatus.BAD_REQUEST.value(), e.getMessage()));
         }
@@ -90,7 +158,7 @@ public class PublisherController {
     public ResponseEntity addBookToPublisher(@PathVariable Long publisherId, @PathVariable Long bookId) {
         try {
             Publisher publisher = publisherService.addBookToPublisher(publisherId, bookId);
-            return ResponseEntity.ok(convertPublisherToDto(publisher));
+            return ResponseEntity.ok(DtoMapper.toDto(publisher));
         } catch (Exception e) {
             return ResponseEntity.badRequest().body(ExceptionBodyBuilder.build(HttpStatus.BAD_REQUEST.value(), e.getMessage()));
         }
@@ -100,21 +168,9 @@ public class PublisherController {
     public ResponseEntity removeBookFromPublisher(@PathVariable Long publisherId, @PathVariable Long bookId) {
         try {
             Publisher publisher = publisherService.removeBookFromPublisher(publisherId, bookId);
-            return ResponseEntity.ok(convertPublisherToDto(publisher));
+            return ResponseEntity.ok(DtoMapper.toDto(publisher));
         } catch (Exception e) {
             return ResponseEntity.badRequest().body(ExceptionBodyBuilder.build(HttpStatus.BAD_REQUEST.value(), e.getMessage()));
         }
     }
-
-    private PublisherDto convertPublisherToDto(Publisher publisher) {
-        Set<Long> bookIds = publisher.getBooks().stream().map(Book::getId).collect(Collectors.toSet());
-        return new PublisherDto(publisher.getId(), publisher.getName(), publisher.getAddress(), bookIds);
-    }
-
-    private Publisher convertDtoToPublisher(PublisherDto dto) {
-        Publisher publisher = new Publisher();
-        publisher.setName(dto.getName());
-        publisher.setAddress(dto.getAddress());
-        return publisher;
-    }
 }
@@ -0,0 +1,32 @@
+package su.ezhidze.libapi.controller;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import su.ezhidze.libapi.metrics.SqlProfiler;
+
+@RestController
+@RequestMapping("/api/admin/sql-profiles")
+@ConditionalOnProperty(name = "libapi.sql-profiler.enabled", havingValue = "true")
+public class SqlProfilerController {
+
+    private final SqlProfiler sqlProfiler;
+
+    public SqlProfilerController(SqlProfiler sqlProfiler) {
+        this.sqlProfiler = sqlProfiler;
+    }
+
+    @GetMapping
+    public ResponseEntity getProfiles() {
+        return ResponseEntity.ok(sqlProfiler.getProfiles());
+    }
+
+    @DeleteMapping
+    public ResponseEntity clearProfiles() {
+        sqlProfiler.clear();
+        return ResponseEntity.noContent().build();
+    }
+}
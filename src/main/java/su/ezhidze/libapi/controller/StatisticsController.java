@@ -0,0 +1,61 @@
+package su.ezhidze.libapi.controller;
+
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import su.ezhidze.libapi.service.StatisticsService;
+
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/stats")
+public class StatisticsController {
+
+    private final StatisticsService statisticsService;
+
+    public StatisticsController(StatisticsService statisticsService) {
+        this.statisticsService = statisticsService;
+    }
+
+    @GetMapping
+    public ResponseEntity getSummary() {
+        return ResponseEntity.ok(statisticsService.summary());
+    }
+
+    @GetMapping("/years")
+    public ResponseEntity getBooksByYear() {
+        return ResponseEntity.ok(statisticsService.booksByYear());
+    }
+
+    @GetMapping("/years/{year}")
+    public ResponseEntity getBooksInYear(@PathVariable int year) {
+        return ResponseEntity.ok(Map.of("year", year, "books", statisticsService.booksInYear(year)));
+    }
+
+    @GetMapping("/publishers")
+    public ResponseEntity getBooksByPublisher() {
+        return ResponseEntity.ok(statisticsService.booksByPublisher());
+    }
+
+    @GetMapping("/publishers/{id}")
+    public ResponseEntity getBooksOfPublisher(@PathVariable Long id) {
+        return ResponseEntity.ok(Map.of("publisherId", id, "books", statisticsService.booksOfPublisher(id)));
+    }
+
+    @GetMapping("/authors")
+    public ResponseEntity getBooksByAuthor() {
+        return ResponseEntity.ok(statisticsService.booksByAuthor());
+    }
+
+    @GetMapping("/authors/{id}")
+    public ResponseEntity getBooksOfAuthor(@PathVariable Long id) {
+        return ResponseEntity.ok(Map.of("authorId", id, "books", statisticsService.booksOfAuthor(id)));
+    }
+
+    @GetMapping("/page-counts")
+    public ResponseEntity getPageCounts() {
+        return ResponseEntity.ok(statisticsService.pageCounts());
+    }
+}
@@ -0,0 +1,181 @@
+package su.ezhidze.libapi.datasource;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.datasource.AbstractDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Hands out primary connections, except inside read-only transactions, where the replicas take turns.
+ * A replica that lags more than {@code maxLag}, fails its lag query or refuses a connection takes no reads
+ * until a later check finds it healthy; with no healthy replica reads fall back to the primary.
+ * <p>
+ * The transaction's read-only flag is only set after the transaction manager has begun, so this has to sit
+ * behind a {@link org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy}, which defers the
+ * choice to the first statement.
+ */
+@Slf4j
+public class ReplicaRoutingDataSource extends AbstractDataSource implements AutoCloseable {
+
+    public static final String PRIMARY = "primary";
+
+    private static final String LAG_COLUMN = "Seconds_Behind_Source";
+
+    private final DataSource primary;
+
+    private final List<Replica> replicas = new ArrayList<>();
+
+    private final Duration maxLag;
+
+    private final String lagQuery;
+
+    private final MeterRegistry meterRegistry;
+
+    private final AtomicInteger next = new AtomicInteger();
+
+    private ScheduledExecutorService scheduler;
+
+    public ReplicaRoutingDataSource(DataSource primary, Map<String, DataSource> replicas, Duration maxLag,
+                                    String lagQuery, MeterRegistry meterRegistry) {
+        this.primary = primary;
+        this.maxLag = maxLag;
+        this.lagQuery = lagQuery;
+        this.meterRegistry = meterRegistry;
+        replicas.forEach((name, dataSource) -> {
+            Replica replica = new Replica(name, dataSource);
+            this.replicas.add(replica);
+            Gauge.builder("libapi.datasource.replica.lag", replica, r -> r.lagSeconds)
+                    .tag("target", name).baseUnit("seconds").register(meterRegistry);
+            Gauge.builder("libapi.datasource.replica.healthy", replica, r -> r.healthy ? 1 : 0)
+                    .tag("target", name).register(meterRegistry);
+        });
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        return route(DataSource::getConnection);
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return route(dataSource -> dataSource.getConnection(username, password));
+    }
+
+    private Connection route(ConnectionSource source) throws SQLException {
+        if (!TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            return connect(PRIMARY, "write", primary, source);
+        }
+        // Each replica gets at most one attempt per connection request
+        for (int attempt = 0; attempt < replicas.size(); attempt++) {
+            Replica replica = replicas.get(Math.floorMod(next.getAndIncrement(), replicas.size()));
+            if (!replica.healthy) continue;
+            try {
+                return connect(replica.name, "read", replica.dataSource, source);
+            } catch (SQLException e) {
+                replica.healthy = false;
+                log.warn("Replica {} refused a connection, reading from the primary until the next check: {}",
+                        replica.name, e.getMessage());
+            }
+        }
+        return connect(PRIMARY, "fallback", primary, source);
+    }
+
+    private Connection connect(String target, String route, DataSource dataSource, ConnectionSource source)
+            throws SQLException {
+        Connection connection = source.get(dataSource);
+        meterRegistry.counter("libapi.datasource.connections", "target", target, "route", route).increment();
+        return connection;
+    }
+
+    public void start(Duration checkInterval) {
+        checkReplicas();
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "replica-lag-check");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long interval = checkInterval.toMillis();
+        scheduler.scheduleWithFixedDelay(this::checkReplicas, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    public void checkReplicas() {
+        for (Replica replica : replicas) {
+            Double lag;
+            try (Connection connection = replica.dataSource.getConnection();
+                 Statement statement = connection.createStatement();
+                 ResultSet resultSet = statement.executeQuery(lagQuery)) {
+                lag = readLag(resultSet);
+            } catch (SQLException e) {
+                log.warn("Lag check on replica {} failed: {}", replica.name, e.getMessage());
+                lag = null;
+            }
+            boolean healthy = lag != null && lag * 1000 <= maxLag.toMillis();
+            if (healthy != replica.healthy) log.info("Replica {} is now {} (lag {}s)", replica.name, healthy ? "in use" : "skipped", lag);
+            replica.lagSeconds = lag != null ? lag : Double.NaN;
+            replica.healthy = healthy;
+        }
+    }
+
+    // No row or a null lag means the server is not replicating, which counts as unbounded lag
+    private static Double readLag(ResultSet resultSet) throws SQLException {
+        if (!resultSet.next()) return null;
+        int column = 1;
+        ResultSetMetaData metaData = resultSet.getMetaData();
+        for (int i = 1; i <= metaData.getColumnCount(); i++) {
+            if (LAG_COLUMN.equalsIgnoreCase(metaData.getColumnLabel(i))) column = i;
+        }
+        Object value = resultSet.getObject(column);
+        return value instanceof Number number ? number.doubleValue() : null;
+    }
+
+    public boolean isHealthy(String replicaName) {
+        return replicas.stream().anyMatch(replica -> replica.name.equals(replicaName) && replica.healthy);
+    }
+
+    @Override
+    public void close() throws Exception {
+        if (scheduler != null) scheduler.shutdownNow();
+        for (Replica replica : replicas) {
+            if (replica.dataSource instanceof AutoCloseable closeable) closeable.close();
+        }
+        if (primary instanceof AutoCloseable closeable) closeable.close();
+    }
+
+    @FunctionalInterface
+    private interface ConnectionSource {
+        Connection get(DataSource dataSource) throws SQLException;
+    }
+
+    private static final class Replica {
+
+        private final String name;
+
+        private final DataSource dataSource;
+
+        // Unknown until the first check, so reads stay on the primary until then
+        private volatile double lagSeconds = Double.NaN;
+
+        private volatile boolean healthy;
+
+        private Replica(String name, DataSource dataSource) {
+            this.name = name;
+            this.dataSource = dataSource;
+        }
+    }
+}
@@ -0,0 +1,19 @@
+package su.ezhidze.libapi.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BatchRequestDto {
+
+    private List<Long> ids;
+
+    private List<String> isbns;
+
+    private List<String> names;
+}
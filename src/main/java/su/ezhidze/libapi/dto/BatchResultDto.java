@@ -0,0 +1,27 @@
+package su.ezhidze.libapi.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BatchResultDto<T> {
+
+    private int index;
+
+    private Object key;
+
+    private boolean found;
+
+    private T item;
+
+    public static <T> BatchResultDto<T> found(int index, Object key, T item) {
+        return new BatchResultDto<>(index, key, true, item);
+    }
+
+    public static <T> BatchResultDto<T> notFound(int index, Object key) {
+        return new BatchResultDto<>(index, key, false, null);
+    }
+}
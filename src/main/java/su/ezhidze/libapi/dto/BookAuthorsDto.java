@@ -0,0 +1,16 @@
+package su.ezhidze.libapi.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// Result of replacing a book's authors: the sorted author ids and the book's version afterwards
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BookAuthorsDto {
+
+    private long version;
+
+    private long[] authorIds;
+}
@@ -0,0 +1,27 @@
+package su.ezhidze.libapi.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BulkResultDto {
+
+    private int index;
+
+    private Long id;
+
+    private boolean created;
+
+    private String reason;
+
+    public static BulkResultDto created(int index, Long id) {
+        return new BulkResultDto(index, id, true, null);
+    }
+
+    public static BulkResultDto failed(int index, String reason) {
+        return new BulkResultDto(index, null, false, reason);
+    }
+}
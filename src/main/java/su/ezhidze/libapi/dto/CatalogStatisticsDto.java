@@ -0,0 +1,24 @@
+package su.ezhidze.libapi.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CatalogStatisticsDto {
+
+    private long books;
+
+    private long pages;
+
+    private double averagePageCount;
+
+    // False while the counters still come from the checkpoint taken at restoredFrom
+    private boolean live;
+
+    private Instant restoredFrom;
+}
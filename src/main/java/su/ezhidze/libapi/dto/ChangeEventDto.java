@@ -0,0 +1,29 @@
+package su.ezhidze.libapi.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import su.ezhidze.libapi.event.ChangeType;
+import su.ezhidze.libapi.event.EntityType;
+
+import java.time.Instant;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ChangeEventDto {
+
+    private long seq;
+
+    private EntityType entityType;
+
+    private ChangeType changeType;
+
+    private Long entityId;
+
+    private EntityType relatedType;
+
+    private Long relatedId;
+
+    private Instant createdAt;
+}
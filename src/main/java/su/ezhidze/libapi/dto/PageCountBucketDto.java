@@ -0,0 +1,18 @@
+package su.ezhidze.libapi.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class PageCountBucketDto {
+
+    private int from;
+
+    // Exclusive; null for the last, open-ended bucket
+    private Integer to;
+
+    private long books;
+}
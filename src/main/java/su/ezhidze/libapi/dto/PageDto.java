@@ -0,0 +1,22 @@
+package su.ezhidze.libapi.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+import java.util.function.Function;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class PageDto<T> {
+
+    private List<T> items;
+
+    private String nextCursor;
+
+    public <R> PageDto<R> map(Function<? super T, ? extends R> mapper) {
+        return new PageDto<>(items.stream().<R>map(mapper).toList(), nextCursor);
+    }
+}
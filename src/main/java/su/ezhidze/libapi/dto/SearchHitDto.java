@@ -0,0 +1,18 @@
+package su.ezhidze.libapi.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import su.ezhidze.libapi.event.EntityType;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class SearchHitDto {
+
+    private EntityType type;
+
+    private Long id;
+
+    private double score;
+}
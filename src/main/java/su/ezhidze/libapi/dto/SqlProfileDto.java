@@ -0,0 +1,31 @@
+package su.ezhidze.libapi.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class SqlProfileDto {
+
+    private Instant timestamp;
+
+    private String method;
+
+    private String uri;
+
+    private String handler;
+
+    private long durationMs;
+
+    private int statementCount;
+
+    private Map<String, Integer> repeatedStatements;
+
+    private List<String> statements;
+}
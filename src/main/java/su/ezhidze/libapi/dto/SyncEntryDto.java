@@ -0,0 +1,21 @@
+package su.ezhidze.libapi.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class SyncEntryDto<T> {
+
+    private Long id;
+
+    private Instant lastModified;
+
+    private boolean deleted;
+
+    private T item;
+}
@@ -0,0 +1,24 @@
+package su.ezhidze.libapi.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * One page of an incremental sync. Once {@code nextCursor} is null, {@code watermark} is the {@code since}
+ * of the next sync.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class SyncPageDto<T> {
+
+    private List<SyncEntryDto<T>> items;
+
+    private String nextCursor;
+
+    private Instant watermark;
+}
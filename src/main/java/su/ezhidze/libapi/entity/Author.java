@@ -2,12 +2,23 @@ package su.ezhidze.libapi.entity;
 
 import jakarta.persistence.*;
 import lombok.*;
+import org.hibernate.annotations.BatchSize;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import su.ezhidze.libapi.config.SecondLevelCacheConfig;
 
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
 import java.util.HashSet;
 import java.util.Set;
 
 @Entity
-@Table(name = "authors")
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = SecondLevelCacheConfig.AUTHOR_REGION)
+@Table(name = "authors", indexes = {
+        @Index(name = "uk_authors_name", columnList = "name", unique = true),
+        @Index(name = "idx_authors_last_modified_id", columnList = "last_modified, id")
+})
 @Getter
 @Setter
 @NoArgsConstructor
@@ -17,11 +28,25 @@ public class Author {
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
 
+    @Version
+    private long version;
+
     private String name;
 
     @Column(length = 1000)
     private String biography;
 
+    @Column(name = "last_modified")
+    private Instant lastModified;
+
     @ManyToMany(mappedBy = "authors")
+    @BatchSize(size = 50)
+    @Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = SecondLevelCacheConfig.AUTHOR_BOOKS_REGION)
     private Set<Book> books = new HashSet<>();
+
+    @PrePersist
+    @PreUpdate
+    public void touch() {
+        lastModified = Instant.now().truncatedTo(ChronoUnit.MICROS);
+    }
 }
@@ -2,38 +2,80 @@ package su.ezhidze.libapi.entity;
 
 import jakarta.persistence.*;
 import lombok.*;
+import org.hibernate.annotations.BatchSize;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import su.ezhidze.libapi.config.SecondLevelCacheConfig;
+import su.ezhidze.libapi.util.Isbn;
 
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
 import java.util.HashSet;
 import java.util.Set;
 
 @Entity
-@Table(name = "books")
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = SecondLevelCacheConfig.BOOK_REGION)
+@Table(name = "books", indexes = {
+        @Index(name = "idx_books_title_id", columnList = "title, id"),
+        @Index(name = "idx_books_publication_year_id", columnList = "publication_year, id"),
+        @Index(name = "uk_books_isbn", columnList = "isbn", unique = true),
+        @Index(name = "uk_books_isbn13", columnList = "isbn13", unique = true),
+        @Index(name = "idx_books_last_modified_id", columnList = "last_modified, id")
+})
 @Getter
 @Setter
 @NoArgsConstructor
 @AllArgsConstructor
 public class Book {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "book_seq")
+    @SequenceGenerator(name = "book_seq", sequenceName = "book_seq", allocationSize = 50)
     private Long id;
 
+    @Version
+    private long version;
+
     private String title;
 
+    @Column(name = "publication_year")
     private int publicationYear;
 
     private String isbn;
 
+    // Canonical ISBN-13 of isbn, null when isbn is not a valid ISBN-10 or ISBN-13
+    @Setter(AccessLevel.NONE)
+    private Long isbn13;
+
     private int pageCount;
 
-    @ManyToOne
+    // Set on insert and update; relation changes call touch() and bulk statements set it with the version bump
+    @Column(name = "last_modified")
+    private Instant lastModified;
+
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "publisher_id")
     private Publisher publisher;
 
     @ManyToMany
+    @BatchSize(size = 50)
+    @Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = SecondLevelCacheConfig.BOOK_AUTHORS_REGION)
     @JoinTable(
             name = "book_authors",
             joinColumns = @JoinColumn(name = "book_id"),
             inverseJoinColumns = @JoinColumn(name = "author_id")
     )
     private Set<Author> authors = new HashSet<>();
+
+    public void setIsbn(String isbn) {
+        this.isbn = isbn;
+        this.isbn13 = Isbn.toIsbn13(isbn);
+    }
+
+    @PrePersist
+    @PreUpdate
+    public void touch() {
+        // The column keeps microseconds; a finer in-memory value would not match it in keyset comparisons
+        lastModified = Instant.now().truncatedTo(ChronoUnit.MICROS);
+    }
 }
@@ -0,0 +1,45 @@
+package su.ezhidze.libapi.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+import su.ezhidze.libapi.index.CatalogCounters;
+
+import java.io.Serializable;
+import java.time.Instant;
+
+/**
+ * One checkpointed count of {@link CatalogCounters}: the bucket is the year, publisher id, author id,
+ * page-count bucket, or for TOTAL 0 for books and 1 for pages.
+ */
+@Entity
+@Table(name = "catalog_statistics")
+@IdClass(CatalogStatistic.Key.class)
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class CatalogStatistic {
+    @Id
+    @Enumerated(EnumType.STRING)
+    @Column(length = 16)
+    private CatalogCounters.Dimension dimension;
+
+    @Id
+    private Long bucket;
+
+    @Column(nullable = false)
+    private long amount;
+
+    @Column(nullable = false)
+    private Instant checkpointedAt;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Key implements Serializable {
+
+        private CatalogCounters.Dimension dimension;
+
+        private Long bucket;
+    }
+}
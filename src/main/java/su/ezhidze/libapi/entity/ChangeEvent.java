@@ -0,0 +1,47 @@
+package su.ezhidze.libapi.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import su.ezhidze.libapi.event.ChangeType;
+import su.ezhidze.libapi.event.EntityType;
+
+import java.time.Instant;
+
+/**
+ * Outbox row written in the same transaction as the change it records. {@code seq} is the feed offset.
+ */
+@Entity
+@Table(name = "change_events")
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class ChangeEvent {
+    // IDENTITY rather than a pooled sequence: offsets follow insert order and only rollbacks leave gaps
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long seq;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 16)
+    private EntityType entityType;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 16)
+    private ChangeType changeType;
+
+    @Column(nullable = false)
+    private Long entityId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(length = 16)
+    private EntityType relatedType;
+
+    private Long relatedId;
+
+    @Column(nullable = false)
+    private Instant createdAt;
+}
@@ -2,11 +2,23 @@ package su.ezhidze.libapi.entity;
 
 import jakarta.persistence.*;
 import lombok.*;
+import org.hibernate.annotations.BatchSize;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import su.ezhidze.libapi.config.SecondLevelCacheConfig;
+
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
 import java.util.HashSet;
 import java.util.Set;
 
 @Entity
-@Table(name = "publishers")
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = SecondLevelCacheConfig.PUBLISHER_REGION)
+@Table(name = "publishers", indexes = {
+        @Index(name = "uk_publishers_name", columnList = "name", unique = true),
+        @Index(name = "idx_publishers_last_modified_id", columnList = "last_modified, id")
+})
 @Getter
 @Setter
 @NoArgsConstructor
@@ -16,10 +28,24 @@ public class Publisher {
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
 
+    @Version
+    private long version;
+
     private String name;
 
     private String address;
 
+    @Column(name = "last_modified")
+    private Instant lastModified;
+
     @OneToMany(mappedBy = "publisher")
+    @BatchSize(size = 50)
+    @Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = SecondLevelCacheConfig.PUBLISHER_BOOKS_REGION)
     private Set<Book> books = new HashSet<>();
+
+    @PrePersist
+    @PreUpdate
+    public void touch() {
+        lastModified = Instant.now().truncatedTo(ChronoUnit.MICROS);
+    }
 }
@@ -0,0 +1,35 @@
+package su.ezhidze.libapi.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import su.ezhidze.libapi.event.EntityType;
+
+import java.time.Instant;
+
+/**
+ * Marks a deleted row for incremental sync, which would otherwise only see rows that still exist.
+ */
+@Entity
+@Table(name = "tombstones", indexes = @Index(name = "idx_tombstones_type_deleted_at_entity_id", columnList = "entity_type, deleted_at, entity_id"))
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class Tombstone {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "entity_type", nullable = false, length = 16)
+    private EntityType entityType;
+
+    @Column(name = "entity_id", nullable = false)
+    private Long entityId;
+
+    @Column(name = "deleted_at", nullable = false)
+    private Instant deletedAt;
+}
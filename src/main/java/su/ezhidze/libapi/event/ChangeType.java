@@ -0,0 +1,9 @@
+package su.ezhidze.libapi.event;
+
+public enum ChangeType {
+    CREATED,
+    UPDATED,
+    DELETED,
+    LINKED,
+    UNLINKED
+}
@@ -0,0 +1,48 @@
+package su.ezhidze.libapi.event;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Published by the services inside the mutating transaction. {@code entity} is the state after the
+ * change and is {@code null} for deletions. {@code LINKED} and {@code UNLINKED} name the other side of
+ * the relation in {@code relatedType} and {@code relatedId} and carry no entity.
+ * <p>
+ * Book events also carry what consumers cannot recover after the commit: {@code previous}, the book as a
+ * {@link su.ezhidze.libapi.dto.BookDto} before an update or deletion, and {@code version}, the book's
+ * version once the change is applied. Creates and updates leave the version to the entity. Relation events
+ * carry the version of whichever entity they are keyed by.
+ */
+@Getter
+@AllArgsConstructor
+public class EntityChangedEvent {
+
+    private final EntityType entityType;
+
+    private final ChangeType changeType;
+
+    private final Long id;
+
+    private final Object entity;
+
+    private final EntityType relatedType;
+
+    private final Long relatedId;
+
+    private final Object previous;
+
+    private final Long version;
+
+    public EntityChangedEvent(EntityType entityType, ChangeType changeType, Long id, Object entity) {
+        this(entityType, changeType, id, entity, null, null, null, null);
+    }
+
+    public EntityChangedEvent(EntityType entityType, ChangeType changeType, Long id, Object entity, Object previous, Long version) {
+        this(entityType, changeType, id, entity, null, null, previous, version);
+    }
+
+    public EntityChangedEvent(EntityType entityType, ChangeType changeType, Long id, long version,
+                              EntityType relatedType, Long relatedId) {
+        this(entityType, changeType, id, null, relatedType, relatedId, null, version);
+    }
+}
@@ -0,0 +1,7 @@
+package su.ezhidze.libapi.event;
+
+public enum EntityType {
+    BOOK,
+    AUTHOR,
+    PUBLISHER
+}
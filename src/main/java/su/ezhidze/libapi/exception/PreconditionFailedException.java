@@ -0,0 +1,7 @@
+package su.ezhidze.libapi.exception;
+
+public class PreconditionFailedException extends RuntimeException {
+    public PreconditionFailedException(String message) {
+        super(message);
+    }
+}
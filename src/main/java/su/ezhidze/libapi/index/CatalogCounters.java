@@ -0,0 +1,239 @@
+package su.ezhidze.libapi.index;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Book counts per publication year, publisher and author plus a page-count histogram. Only the counts are
+ * kept: each change arrives as a delta with the values it removes and adds, and deltas commute, so changes
+ * may be applied in any order but must be applied once. A count may go negative for as long as a decrement
+ * is applied ahead of its increment. Deleted authors and publishers are remembered so a late delta cannot
+ * bring their count back. Writers serialize on a lock; readers go straight to concurrent
+ * maps and never block, at the price of possibly seeing one change half applied.
+ */
+public class CatalogCounters {
+
+    public enum Dimension {
+        YEAR,
+        PUBLISHER,
+        AUTHOR,
+        PAGES,
+        TOTAL
+    }
+
+    public static final int PAGE_BUCKET_WIDTH = 100;
+
+    // The last bucket also takes every longer book
+    public static final int PAGE_BUCKETS = 11;
+
+    private static final long[] NO_AUTHORS = new long[0];
+
+    private final ReentrantLock lock = new ReentrantLock();
+
+    private final ConcurrentHashMap<Long, Long> byYear = new ConcurrentHashMap<>();
+
+    private final ConcurrentHashMap<Long, Long> byPublisher = new ConcurrentHashMap<>();
+
+    private final ConcurrentHashMap<Long, Long> byAuthor = new ConcurrentHashMap<>();
+
+    private final AtomicLongArray pageBuckets = new AtomicLongArray(PAGE_BUCKETS);
+
+    private final AtomicLong bookCount = new AtomicLong();
+
+    private final AtomicLong pageCount = new AtomicLong();
+
+    private final Set<Long> removedPublishers = new HashSet<>();
+
+    private final Set<Long> removedAuthors = new HashSet<>();
+
+    public void add(BookFacts facts) {
+        change(null, facts);
+    }
+
+    public void remove(BookFacts facts) {
+        change(facts, null);
+    }
+
+    /**
+     * Moves one book from the buckets of {@code before} to those of {@code after}; either may be
+     * {@code null} for a creation or a deletion.
+     */
+    public void change(BookFacts before, BookFacts after) {
+        lock.lock();
+        try {
+            if (before != null) count(before, -1);
+            if (after != null) count(after, 1);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void link(long authorId) {
+        lock.lock();
+        try {
+            if (!removedAuthors.contains(authorId)) add(byAuthor, authorId, 1);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void unlink(long authorId) {
+        lock.lock();
+        try {
+            if (!removedAuthors.contains(authorId)) add(byAuthor, authorId, -1);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void attach(long publisherId) {
+        lock.lock();
+        try {
+            if (!removedPublishers.contains(publisherId)) add(byPublisher, publisherId, 1);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void detach(long publisherId) {
+        lock.lock();
+        try {
+            if (!removedPublishers.contains(publisherId)) add(byPublisher, publisherId, -1);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Ids are never reused, so whatever still references a removed id is stale
+    public void removeAuthor(long authorId) {
+        lock.lock();
+        try {
+            removedAuthors.add(authorId);
+            byAuthor.remove(authorId);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void removePublisher(long publisherId) {
+        lock.lock();
+        try {
+            removedPublishers.add(publisherId);
+            byPublisher.remove(publisherId);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Sets one count directly, for loading a checkpoint or the result of a full count into an empty instance.
+     */
+    public void restore(Dimension dimension, long bucket, long amount) {
+        switch (dimension) {
+            case YEAR -> byYear.put(bucket, amount);
+            case PUBLISHER -> byPublisher.put(bucket, amount);
+            case AUTHOR -> byAuthor.put(bucket, amount);
+            case PAGES -> pageBuckets.set((int) bucket, amount);
+            case TOTAL -> (bucket == 0 ? bookCount : pageCount).set(amount);
+        }
+    }
+
+    public void forEachCount(CountVisitor visitor) {
+        byYear.forEach((year, amount) -> visitor.visit(Dimension.YEAR, year, amount));
+        byPublisher.forEach((id, amount) -> visitor.visit(Dimension.PUBLISHER, id, amount));
+        byAuthor.forEach((id, amount) -> visitor.visit(Dimension.AUTHOR, id, amount));
+        for (int i = 0; i < PAGE_BUCKETS; i++) visitor.visit(Dimension.PAGES, i, pageBuckets.get(i));
+        visitor.visit(Dimension.TOTAL, 0, bookCount.get());
+        visitor.visit(Dimension.TOTAL, 1, pageCount.get());
+    }
+
+    public long books() {
+        return bookCount.get();
+    }
+
+    public long pages() {
+        return pageCount.get();
+    }
+
+    public long booksInYear(int year) {
+        return byYear.getOrDefault((long) year, 0L);
+    }
+
+    public long booksOfPublisher(long publisherId) {
+        return byPublisher.getOrDefault(publisherId, 0L);
+    }
+
+    public long booksOfAuthor(long authorId) {
+        return byAuthor.getOrDefault(authorId, 0L);
+    }
+
+    public SortedMap<Long, Long> booksByYear() {
+        return new TreeMap<>(byYear);
+    }
+
+    public SortedMap<Long, Long> booksByPublisher() {
+        return new TreeMap<>(byPublisher);
+    }
+
+    public SortedMap<Long, Long> booksByAuthor() {
+        return new TreeMap<>(byAuthor);
+    }
+
+    public long[] pageCountBuckets() {
+        long[] counts = new long[PAGE_BUCKETS];
+        for (int i = 0; i < PAGE_BUCKETS; i++) counts[i] = pageBuckets.get(i);
+        return counts;
+    }
+
+    public static int bucket(int pageCount) {
+        return Math.min(Math.max(pageCount, 0) / PAGE_BUCKET_WIDTH, PAGE_BUCKETS - 1);
+    }
+
+    private void count(BookFacts facts, int delta) {
+        add(byYear, (long) facts.getYear(), delta);
+        if (facts.getPublisherId() != null && !removedPublishers.contains(facts.getPublisherId())) {
+            add(byPublisher, facts.getPublisherId(), delta);
+        }
+        for (long authorId : facts.getAuthorIds()) {
+            if (!removedAuthors.contains(authorId)) add(byAuthor, authorId, delta);
+        }
+        pageBuckets.addAndGet(bucket(facts.getPageCount()), delta);
+        bookCount.addAndGet(delta);
+        pageCount.addAndGet((long) delta * facts.getPageCount());
+    }
+
+    private static void add(ConcurrentHashMap<Long, Long> counts, Long key, int delta) {
+        counts.merge(key, (long) delta, (amount, change) -> amount + change == 0 ? null : amount + change);
+    }
+
+    @FunctionalInterface
+    public interface CountVisitor {
+        void visit(Dimension dimension, long bucket, long amount);
+    }
+
+    /**
+     * The values of one book that the counters bucket it by.
+     */
+    @Getter
+    @AllArgsConstructor
+    public static class BookFacts {
+
+        private final int year;
+
+        private final int pageCount;
+
+        private final Long publisherId;
+
+        private final long[] authorIds;
+
+        public BookFacts(int year, int pageCount, Long publisherId) {
+            this(year, pageCount, publisherId, NO_AUTHORS);
+        }
+    }
+}
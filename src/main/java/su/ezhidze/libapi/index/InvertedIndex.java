@@ -0,0 +1,243 @@
+package su.ezhidze.libapi.index;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.*;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Thread-safe in-memory inverted index ranked with BM25. Documents are identified by a caller-chosen
+ * {@code long} key; internally they get dense int ids so posting lists are plain int arrays.
+ * Removed documents are tombstoned and dropped from the postings once they outnumber live ones.
+ */
+public class InvertedIndex {
+
+    private static final double K1 = 1.2;
+
+    private static final double B = 0.75;
+
+    private static final int MIN_COMPACTION_GARBAGE = 1024;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private final Map<String, Integer> termIds = new HashMap<>();
+
+    private PostingList[] postings = new PostingList[64];
+
+    private int termCount;
+
+    private final Map<Long, Integer> docsByKey = new HashMap<>();
+
+    private long[] docKeys = new long[64];
+
+    private int[] docLengths = new int[64];
+
+    private int[][] docTerms = new int[64][];
+
+    private final BitSet deleted = new BitSet();
+
+    private int docCount;
+
+    private int liveCount;
+
+    private long liveLength;
+
+    public void put(long key, String text) {
+        List<String> tokens = Tokenizer.tokenize(text);
+        Map<String, Integer> frequencies = new HashMap<>();
+        for (String token : tokens) frequencies.merge(token, 1, Integer::sum);
+        lock.writeLock().lock();
+        try {
+            removeDocument(key);
+            if (!tokens.isEmpty()) addDocument(key, tokens.size(), frequencies);
+            compactIfSparse();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(long key) {
+        lock.writeLock().lock();
+        try {
+            removeDocument(key);
+            compactIfSparse();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return liveCount;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public List<Hit> search(String query, int limit) {
+        Set<String> terms = new LinkedHashSet<>(Tokenizer.tokenize(query));
+        lock.readLock().lock();
+        try {
+            if (liveCount == 0 || terms.isEmpty()) return List.of();
+            double averageLength = (double) liveLength / liveCount;
+            Map<Integer, Double> scores = new HashMap<>();
+            for (String term : terms) {
+                Integer termId = termIds.get(term);
+                if (termId == null) continue;
+                PostingList postingList = postings[termId];
+                if (postingList.live == 0) continue;
+                double idf = Math.log(1 + (liveCount - postingList.live + 0.5) / (postingList.live + 0.5));
+                for (int i = 0; i < postingList.size; i++) {
+                    int doc = postingList.docs[i];
+                    if (deleted.get(doc)) continue;
+                    int frequency = postingList.frequencies[i];
+                    double saturation = frequency * (K1 + 1)
+                            / (frequency + K1 * (1 - B + B * docLengths[doc] / averageLength));
+                    scores.merge(doc, idf * saturation, Double::sum);
+                }
+            }
+            PriorityQueue<Map.Entry<Integer, Double>> top = new PriorityQueue<>(Map.Entry.comparingByValue());
+            for (Map.Entry<Integer, Double> entry : scores.entrySet()) {
+                top.offer(entry);
+                if (top.size() > limit) top.poll();
+            }
+            List<Hit> hits = new ArrayList<>(top.size());
+            while (!top.isEmpty()) {
+                Map.Entry<Integer, Double> entry = top.poll();
+                hits.add(new Hit(docKeys[entry.getKey()], entry.getValue()));
+            }
+            Collections.reverse(hits);
+            return hits;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Number of internal document slots in use, live or tombstoned
+    int slots() {
+        lock.readLock().lock();
+        try {
+            return docCount;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void addDocument(long key, int length, Map<String, Integer> frequencies) {
+        int doc = docCount++;
+        ensureDocCapacity(docCount);
+        int[] terms = new int[frequencies.size()];
+        int i = 0;
+        for (Map.Entry<String, Integer> entry : frequencies.entrySet()) {
+            int term = termId(entry.getKey());
+            postings[term].add(doc, entry.getValue());
+            terms[i++] = term;
+        }
+        docKeys[doc] = key;
+        docLengths[doc] = length;
+        docTerms[doc] = terms;
+        docsByKey.put(key, doc);
+        liveCount++;
+        liveLength += length;
+    }
+
+    private void removeDocument(long key) {
+        Integer doc = docsByKey.remove(key);
+        if (doc == null) return;
+        deleted.set(doc);
+        for (int term : docTerms[doc]) postings[term].live--;
+        docTerms[doc] = null;
+        liveCount--;
+        liveLength -= docLengths[doc];
+    }
+
+    // Replacing a document tombstones its old slot just like removing it, so both paths check for garbage
+    private void compactIfSparse() {
+        int garbage = docCount - liveCount;
+        if (garbage > MIN_COMPACTION_GARBAGE && garbage > liveCount) compact();
+    }
+
+    private int termId(String term) {
+        Integer existing = termIds.get(term);
+        if (existing != null) return existing;
+        if (termCount == postings.length) postings = Arrays.copyOf(postings, termCount * 2);
+        postings[termCount] = new PostingList();
+        termIds.put(term, termCount);
+        return termCount++;
+    }
+
+    private void ensureDocCapacity(int capacity) {
+        if (capacity <= docKeys.length) return;
+        int newLength = Math.max(capacity, docKeys.length * 2);
+        docKeys = Arrays.copyOf(docKeys, newLength);
+        docLengths = Arrays.copyOf(docLengths, newLength);
+        docTerms = Arrays.copyOf(docTerms, newLength);
+    }
+
+    // Renumbers live documents densely; internal ids only ever move down, so the copy is in place.
+    private void compact() {
+        int[] remap = new int[docCount];
+        int next = 0;
+        for (int doc = 0; doc < docCount; doc++) {
+            if (deleted.get(doc)) {
+                remap[doc] = -1;
+                continue;
+            }
+            remap[doc] = next;
+            docKeys[next] = docKeys[doc];
+            docLengths[next] = docLengths[doc];
+            docTerms[next] = docTerms[doc];
+            docsByKey.put(docKeys[next], next);
+            next++;
+        }
+        Arrays.fill(docTerms, next, docCount, null);
+        for (int term = 0; term < termCount; term++) postings[term].compact(remap);
+        docCount = next;
+        deleted.clear();
+    }
+
+    @Getter
+    @AllArgsConstructor
+    public static class Hit {
+
+        private final long key;
+
+        private final double score;
+    }
+
+    private static class PostingList {
+
+        private int[] docs = new int[4];
+
+        private int[] frequencies = new int[4];
+
+        private int size;
+
+        private int live;
+
+        private void add(int doc, int frequency) {
+            if (size == docs.length) {
+                docs = Arrays.copyOf(docs, size * 2);
+                frequencies = Arrays.copyOf(frequencies, size * 2);
+            }
+            docs[size] = doc;
+            frequencies[size] = frequency;
+            size++;
+            live++;
+        }
+
+        private void compact(int[] remap) {
+            int kept = 0;
+            for (int i = 0; i < size; i++) {
+                int doc = remap[docs[i]];
+                if (doc < 0) continue;
+                docs[kept] = doc;
+                frequencies[kept] = frequencies[i];
+                kept++;
+            }
+            size = kept;
+        }
+    }
+}
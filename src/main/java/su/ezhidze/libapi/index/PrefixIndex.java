@@ -0,0 +1,166 @@
+package su.ezhidze.libapi.index;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.*;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Case-insensitive prefix lookup over names kept as two parallel arrays sorted by (name, id), so a
+ * query is one binary search plus a scan of at most {@code limit} entries. The same entries are also
+ * kept sorted by id, sharing the name references, so a write finds an entry by binary search too; it then
+ * shifts the arrays in place, which is cheap next to how rarely names change compared to how often they
+ * are suggested. New ids are the largest, so an insert usually shifts nothing in id order.
+ */
+public class PrefixIndex {
+
+    private static final Comparator<Entry> ORDER = Comparator.comparing(Entry::getName, String.CASE_INSENSITIVE_ORDER)
+            .thenComparingLong(Entry::getId);
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private String[] names = new String[16];
+
+    private long[] ids = new long[16];
+
+    private long[] idOrder = new long[16];
+
+    private String[] idOrderNames = new String[16];
+
+    private int size;
+
+    public void rebuild(List<Entry> entries) {
+        List<Entry> sorted = new ArrayList<>(entries.size());
+        for (Entry entry : entries) if (entry.getName() != null) sorted.add(entry);
+        sorted.sort(ORDER);
+        String[] newNames = new String[Math.max(16, sorted.size())];
+        long[] newIds = new long[newNames.length];
+        for (int i = 0; i < sorted.size(); i++) {
+            newNames[i] = sorted.get(i).getName();
+            newIds[i] = sorted.get(i).getId();
+        }
+        sorted.sort(Comparator.comparingLong(Entry::getId));
+        long[] newIdOrder = new long[newNames.length];
+        String[] newIdOrderNames = new String[newNames.length];
+        for (int i = 0; i < sorted.size(); i++) {
+            newIdOrder[i] = sorted.get(i).getId();
+            newIdOrderNames[i] = sorted.get(i).getName();
+        }
+        lock.writeLock().lock();
+        try {
+            names = newNames;
+            ids = newIds;
+            idOrder = newIdOrder;
+            idOrderNames = newIdOrderNames;
+            size = sorted.size();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void put(long id, String name) {
+        lock.writeLock().lock();
+        try {
+            int byId = Arrays.binarySearch(idOrder, 0, size, id);
+            if (byId >= 0 && name != null && name.equals(idOrderNames[byId])) return;
+            removeEntry(id);
+            if (name == null) return;
+            if (size == names.length) {
+                names = Arrays.copyOf(names, size * 2);
+                ids = Arrays.copyOf(ids, size * 2);
+                idOrder = Arrays.copyOf(idOrder, size * 2);
+                idOrderNames = Arrays.copyOf(idOrderNames, size * 2);
+            }
+            int position = insertionPoint(name, id);
+            System.arraycopy(names, position, names, position + 1, size - position);
+            System.arraycopy(ids, position, ids, position + 1, size - position);
+            names[position] = name;
+            ids[position] = id;
+            position = -Arrays.binarySearch(idOrder, 0, size, id) - 1;
+            System.arraycopy(idOrder, position, idOrder, position + 1, size - position);
+            System.arraycopy(idOrderNames, position, idOrderNames, position + 1, size - position);
+            idOrder[position] = id;
+            idOrderNames[position] = name;
+            size++;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(long id) {
+        lock.writeLock().lock();
+        try {
+            removeEntry(id);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public List<Entry> suggest(String prefix, int limit) {
+        lock.readLock().lock();
+        try {
+            List<Entry> result = new ArrayList<>(Math.min(limit, 16));
+            for (int i = lowerBound(prefix); i < size && result.size() < limit; i++) {
+                if (!names[i].regionMatches(true, 0, prefix, 0, prefix.length())) break;
+                result.add(new Entry(ids[i], names[i]));
+            }
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return size;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private int lowerBound(String prefix) {
+        int low = 0;
+        int high = size;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (String.CASE_INSENSITIVE_ORDER.compare(names[middle], prefix) < 0) low = middle + 1;
+            else high = middle;
+        }
+        return low;
+    }
+
+    private int insertionPoint(String name, long id) {
+        int low = 0;
+        int high = size;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            int comparison = String.CASE_INSENSITIVE_ORDER.compare(names[middle], name);
+            if (comparison < 0 || comparison == 0 && ids[middle] < id) low = middle + 1;
+            else high = middle;
+        }
+        return low;
+    }
+
+    private void removeEntry(long id) {
+        int byId = Arrays.binarySearch(idOrder, 0, size, id);
+        if (byId < 0) return;
+        int i = insertionPoint(idOrderNames[byId], id);
+        System.arraycopy(names, i + 1, names, i, size - i - 1);
+        System.arraycopy(ids, i + 1, ids, i, size - i - 1);
+        System.arraycopy(idOrder, byId + 1, idOrder, byId, size - byId - 1);
+        System.arraycopy(idOrderNames, byId + 1, idOrderNames, byId, size - byId - 1);
+        idOrderNames[--size] = null;
+        names[size] = null;
+    }
+
+    @Getter
+    @AllArgsConstructor
+    public static class Entry {
+
+        private final long id;
+
+        private final String name;
+    }
+}
@@ -0,0 +1,94 @@
+package su.ezhidze.libapi.metrics;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import su.ezhidze.libapi.dto.SqlProfileDto;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Diagnostic mode behind {@code libapi.sql-profiler.enabled}: requests record their SQL, requests
+ * that repeat a statement shape are reported as N+1 suspects, and the last slow or suspect requests
+ * are kept for the admin endpoint.
+ */
+@Slf4j
+@Component
+public class SqlProfiler {
+
+    private final MeterRegistry meterRegistry;
+
+    private final boolean enabled;
+
+    private final Duration slowThreshold;
+
+    private final int repeatThreshold;
+
+    private final int historySize;
+
+    private final ReentrantLock lock = new ReentrantLock();
+
+    private final Deque<SqlProfileDto> history = new ArrayDeque<>();
+
+    @Autowired
+    public SqlProfiler(MeterRegistry meterRegistry,
+                       @Value("${libapi.sql-profiler.enabled:false}") boolean enabled,
+                       @Value("${libapi.sql-profiler.slow-threshold:200ms}") Duration slowThreshold,
+                       @Value("${libapi.sql-profiler.repeat-threshold:5}") int repeatThreshold,
+                       @Value("${libapi.sql-profiler.history-size:50}") int historySize) {
+        this.meterRegistry = meterRegistry;
+        this.enabled = enabled;
+        this.slowThreshold = slowThreshold;
+        this.repeatThreshold = repeatThreshold;
+        this.historySize = historySize;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void record(String method, String uri, String handler, Duration duration, SqlTrace trace) {
+        Map<String, Integer> repeated = trace.repeatedShapes(repeatThreshold);
+        if (!repeated.isEmpty()) {
+            meterRegistry.counter("libapi.sql.repeated", "method", method, "uri", uri).increment();
+            repeated.forEach((shape, count) -> log.warn("{} {} ({}) ran {} times: {}", method, uri, handler, count, shape));
+        }
+        if (repeated.isEmpty() && duration.compareTo(slowThreshold) < 0) return;
+        SqlProfileDto profile = new SqlProfileDto(Instant.now(), method, uri, handler, duration.toMillis(),
+                trace.getCount(), repeated, List.copyOf(trace.getStatements()));
+        lock.lock();
+        try {
+            if (history.size() == historySize) history.removeLast();
+            history.addFirst(profile);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public List<SqlProfileDto> getProfiles() {
+        lock.lock();
+        try {
+            return new ArrayList<>(history);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void clear() {
+        lock.lock();
+        try {
+            history.clear();
+        } finally {
+            lock.unlock();
+        }
+    }
+}
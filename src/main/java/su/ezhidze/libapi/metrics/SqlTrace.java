@@ -0,0 +1,72 @@
+package su.ezhidze.libapi.metrics;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+/**
+ * Statements seen on one thread inside a {@link StatementCounter} window. Windows nest: a closed
+ * window adds its statements to the enclosing one, so a test budget around a MockMvc call and the
+ * request filter inside it both see the same SQL.
+ */
+public class SqlTrace {
+
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+
+    private static final Pattern PARAMETER_LIST = Pattern.compile("\\(\\s*\\?(\\s*,\\s*\\?)*\\s*\\)");
+
+    private static final Pattern LITERAL = Pattern.compile("'[^']*'|\\b\\d+\\b");
+
+    private final SqlTrace parent;
+
+    private final List<String> statements;
+
+    private int count;
+
+    SqlTrace(SqlTrace parent, boolean record) {
+        this.parent = parent;
+        this.statements = record || (parent != null && parent.statements != null) ? new ArrayList<>() : null;
+    }
+
+    SqlTrace getParent() {
+        return parent;
+    }
+
+    void add(String sql) {
+        count++;
+        if (statements != null) statements.add(sql);
+    }
+
+    void addAll(SqlTrace child) {
+        count += child.count;
+        if (statements != null && child.statements != null) statements.addAll(child.statements);
+    }
+
+    public int getCount() {
+        return count;
+    }
+
+    public List<String> getStatements() {
+        return statements != null ? statements : List.of();
+    }
+
+    /**
+     * Statement shapes executed at least {@code threshold} times, with their counts. Shapes ignore
+     * literal values and the length of {@code in (?, ?, ...)} lists, so the per-row queries of an
+     * N+1 loop collapse into one entry.
+     */
+    public Map<String, Integer> repeatedShapes(int threshold) {
+        Map<String, Integer> counts = new LinkedHashMap<>();
+        for (String sql : getStatements()) counts.merge(shape(sql), 1, Integer::sum);
+        counts.values().removeIf(shapeCount -> shapeCount < threshold);
+        return counts;
+    }
+
+    static String shape(String sql) {
+        String shape = WHITESPACE.matcher(sql.trim()).replaceAll(" ");
+        shape = LITERAL.matcher(shape).replaceAll("?");
+        return PARAMETER_LIST.matcher(shape).replaceAll("(?)");
+    }
+}
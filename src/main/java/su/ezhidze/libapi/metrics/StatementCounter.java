@@ -0,0 +1,41 @@
+package su.ezhidze.libapi.metrics;
+
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+
+/**
+ * Counts, and optionally records, the SQL statements Hibernate prepares on the current thread between
+ * {@link #begin} and {@link #end()}. Threads outside such a window are not tracked.
+ */
+public class StatementCounter implements StatementInspector {
+
+    private static final ThreadLocal<SqlTrace> CURRENT = new ThreadLocal<>();
+
+    public static SqlTrace begin() {
+        return begin(false);
+    }
+
+    public static SqlTrace begin(boolean record) {
+        SqlTrace trace = new SqlTrace(CURRENT.get(), record);
+        CURRENT.set(trace);
+        return trace;
+    }
+
+    public static SqlTrace end() {
+        SqlTrace trace = CURRENT.get();
+        if (trace == null) return new SqlTrace(null, false);
+        if (trace.getParent() != null) {
+            trace.getParent().addAll(trace);
+            CURRENT.set(trace.getParent());
+        } else {
+            CURRENT.remove();
+        }
+        return trace;
+    }
+
+    @Override
+    public String inspect(String sql) {
+        SqlTrace trace = CURRENT.get();
+        if (trace != null) trace.add(sql);
+        return sql;
+    }
+}
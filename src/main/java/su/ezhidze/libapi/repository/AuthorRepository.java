@@ -1,8 +1,87 @@
 package su.ezhidze.libapi.repository;
 
-import org.springframework.data.repository.CrudRepository;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import su.ezhidze.libapi.entity.Author;
 
-public interface AuthorRepository extends CrudRepository<Author, Long> {
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+public interface AuthorRepository extends JpaRepository<Author, Long> {
+    @Query("select a.version from Author a where a.id = :id")
+    Optional<Long> findVersionById(@Param("id") Long id);
+
+    @Modifying
+    @Query("update Author a set a.version = a.version + 1, a.lastModified = :now where a.id in :ids")
+    int incrementVersions(@Param("ids") Collection<Long> ids, @Param("now") Instant now);
+
+    @Modifying
+    @QueryHints({@QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = "authors"),
+            @QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = "book_authors")})
+    @Query(value = "update authors set version = version + 1, last_modified = :now where id in " +
+            "(select author_id from book_authors where book_id = :bookId)", nativeQuery = true)
+    int incrementVersionsByBookId(@Param("bookId") Long bookId, @Param("now") Instant now);
+
+    @Modifying
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = "book_authors"))
+    @Query(value = "delete from book_authors where author_id = :authorId", nativeQuery = true)
+    int deleteAllBookLinks(@Param("authorId") Long authorId);
+
+    @Query("select a.id, a.version from Author a join a.books b where b.id = :bookId")
+    List<Object[]> findVersionsByBookId(@Param("bookId") Long bookId);
+
+    @Modifying
+    @Query("delete from Author a where a.id = :id and a.version = :version")
+    int deleteRowByIdAndVersion(@Param("id") Long id, @Param("version") long version);
+
+    @EntityGraph(attributePaths = "books")
+    Optional<Author> findWithBooksById(Long id);
+
+    @EntityGraph(attributePaths = "books")
+    List<Author> findWithBooksByIdIn(Collection<Long> ids);
+
+    @EntityGraph(attributePaths = "books")
+    List<Author> findWithBooksByNameIn(Collection<String> names);
+
+    @EntityGraph(attributePaths = "books")
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"))
     Author findByName(String name);
+
+    @Query("select a.id from Author a where a.id in :ids")
+    List<Long> findExistingIds(@Param("ids") Collection<Long> ids);
+
+    List<Author> findByIdGreaterThanOrderByIdAsc(Long id, Pageable pageable);
+
+    List<Author> findAllByOrderByNameAscIdAsc(Pageable pageable);
+
+    @Query("select a from Author a where a.name > :name or (a.name = :name and a.id > :id) order by a.name, a.id")
+    List<Author> findPageByNameAfter(@Param("name") String name, @Param("id") Long id, Pageable pageable);
+
+    @Query("select a from Author a where (a.name is null and a.id > :id) or a.name is not null order by a.name, a.id")
+    List<Author> findPageByNullNameAfter(@Param("id") Long id, Pageable pageable);
+
+    @Query("select a from Author a where (a.lastModified > :since or (a.lastModified = :since and a.id > :id)) " +
+            "and a.lastModified <= :until order by a.lastModified, a.id")
+    List<Author> findModifiedAfter(@Param("since") Instant since, @Param("id") Long id, @Param("until") Instant until, Pageable pageable);
+
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("select a.id, a.name, a.biography, b.id from Author a left join a.books b order by a.id")
+    Stream<Object[]> streamExportRows();
+
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"))
+    @Query("select a.id, a.name, a.biography from Author a")
+    Stream<Object[]> streamSearchRows();
 }
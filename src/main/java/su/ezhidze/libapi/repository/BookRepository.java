@@ -1,8 +1,158 @@
 package su.ezhidze.libapi.repository;
 
-import org.springframework.data.repository.CrudRepository;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import su.ezhidze.libapi.entity.Book;
 
-public interface BookRepository extends CrudRepository<Book, Long> {
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+public interface BookRepository extends JpaRepository<Book, Long> {
+    @Query("select b.version from Book b where b.id = :id")
+    Optional<Long> findVersionById(@Param("id") Long id);
+
+    @EntityGraph(attributePaths = "authors")
+    Optional<Book> findWithAuthorsById(Long id);
+
+    @EntityGraph(attributePaths = "authors")
+    List<Book> findWithAuthorsByIdIn(Collection<Long> ids);
+
+    @EntityGraph(attributePaths = "authors")
+    List<Book> findWithAuthorsByIsbnIn(Collection<String> isbns);
+
+    @EntityGraph(attributePaths = "authors")
+    List<Book> findWithAuthorsByIsbn13In(Collection<Long> isbn13s);
+
+    @EntityGraph(attributePaths = {"authors", "publisher"})
+    Optional<Book> findWithAuthorsAndPublisherById(Long id);
+
+    @EntityGraph(attributePaths = {"authors", "publisher"})
+    List<Book> findWithAuthorsAndPublisherByIdIn(Collection<Long> ids);
+
+    @EntityGraph(attributePaths = "authors")
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"))
     Book findByIsbn(String isbn);
+
+    @EntityGraph(attributePaths = "authors")
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"))
+    Book findByIsbn13(Long isbn13);
+
+    @Query("select b.isbn from Book b where b.isbn in :isbns")
+    List<String> findExistingIsbns(@Param("isbns") Collection<String> isbns);
+
+    @Query("select b.isbn13 from Book b where b.isbn13 in :isbn13s")
+    List<Long> findExistingIsbn13s(@Param("isbn13s") Collection<Long> isbn13s);
+
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"))
+    @Query("select b.isbn13, b.id from Book b where b.isbn13 is not null")
+    Stream<Object[]> streamIsbn13Rows();
+
+    List<Book> findByIdGreaterThanOrderByIdAsc(Long id, Pageable pageable);
+
+    List<Book> findAllByOrderByTitleAscIdAsc(Pageable pageable);
+
+    @Query("select b from Book b where b.title > :title or (b.title = :title and b.id > :id) order by b.title, b.id")
+    List<Book> findPageByTitleAfter(@Param("title") String title, @Param("id") Long id, Pageable pageable);
+
+    @Query("select b from Book b where (b.title is null and b.id > :id) or b.title is not null order by b.title, b.id")
+    List<Book> findPageByNullTitleAfter(@Param("id") Long id, Pageable pageable);
+
+    List<Book> findAllByOrderByPublicationYearAscIdAsc(Pageable pageable);
+
+    @Query("select b from Book b where b.publicationYear > :year or (b.publicationYear = :year and b.id > :id) " +
+            "order by b.publicationYear, b.id")
+    List<Book> findPageByPublicationYearAfter(@Param("year") int year, @Param("id") Long id, Pageable pageable);
+
+    // Keyset on (lastModified, id) over idx_books_last_modified_id. The first page passes the caller's since with id
+    // Long.MAX_VALUE, so it starts strictly after since; later pages pass the last row's lastModified and id
+    @Query("select b from Book b where (b.lastModified > :since or (b.lastModified = :since and b.id > :id)) " +
+            "and b.lastModified <= :until order by b.lastModified, b.id")
+    List<Book> findModifiedAfter(@Param("since") Instant since, @Param("id") Long id, @Param("until") Instant until, Pageable pageable);
+
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"))
+    @Query(value = "select book_id from book_authors where author_id = :authorId", nativeQuery = true)
+    Stream<Number> streamIdsByAuthorId(@Param("authorId") Long authorId);
+
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"))
+    @Query(value = "select author_id from book_authors where book_id = :bookId", nativeQuery = true)
+    Stream<Number> streamAuthorIdsById(@Param("bookId") Long bookId);
+
+    @Modifying(flushAutomatically = true)
+    @Query("update Book b set b.version = b.version + 1, b.lastModified = :now where b.id = :id")
+    int incrementVersion(@Param("id") Long id, @Param("now") Instant now);
+
+    @Modifying
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = "book_authors"))
+    @Query(value = "delete from book_authors where book_id = :bookId and author_id in :authorIds", nativeQuery = true)
+    int deleteAuthorLinks(@Param("bookId") Long bookId, @Param("authorIds") Collection<Long> authorIds);
+
+    @Modifying
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = "book_authors"))
+    @Query(value = "insert into book_authors (book_id, author_id) select :bookId, id from authors where id in :authorIds",
+            nativeQuery = true)
+    int insertAuthorLinks(@Param("bookId") Long bookId, @Param("authorIds") Collection<Long> authorIds);
+
+    @Modifying
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = "book_authors"))
+    @Query(value = "delete from book_authors where book_id = :bookId", nativeQuery = true)
+    int deleteAllAuthorLinks(@Param("bookId") Long bookId);
+
+    @Modifying
+    @QueryHints({@QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = "books"),
+            @QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = "book_authors")})
+    @Query(value = "update books set version = version + 1, last_modified = :now where id in " +
+            "(select book_id from book_authors where author_id = :authorId)", nativeQuery = true)
+    int incrementVersionsByAuthorId(@Param("authorId") Long authorId, @Param("now") Instant now);
+
+    @Modifying
+    @Query("update Book b set b.publisher = null, b.version = b.version + 1, b.lastModified = :now where b.publisher.id = :publisherId")
+    int detachFromPublisher(@Param("publisherId") Long publisherId, @Param("now") Instant now);
+
+    @Modifying
+    @Query("delete from Book b where b.id = :id and b.version = :version")
+    int deleteRowByIdAndVersion(@Param("id") Long id, @Param("version") long version);
+
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"))
+    @Query(value = "select id from books where publisher_id = :publisherId", nativeQuery = true)
+    Stream<Number> streamIdsByPublisherId(@Param("publisherId") Long publisherId);
+
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("select b.id, b.title, b.publicationYear, b.isbn, b.pageCount, p.id, a.id from Book b " +
+            "left join b.publisher p left join b.authors a order by b.id")
+    Stream<Object[]> streamExportRows();
+
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"))
+    @Query("select b.id, b.title from Book b")
+    Stream<Object[]> streamSearchRows();
+
+    @Query("select b.publicationYear, count(b) from Book b group by b.publicationYear")
+    List<Object[]> countByPublicationYear();
+
+    @Query("select b.publisher.id, count(b) from Book b where b.publisher is not null group by b.publisher.id")
+    List<Object[]> countByPublisher();
+
+    @Query(value = "select author_id, count(*) from book_authors group by author_id", nativeQuery = true)
+    List<Object[]> countByAuthor();
+
+    @Query("select b.pageCount, count(b) from Book b group by b.pageCount")
+    List<Object[]> countByPageCount();
+
+    @Query("select b.id, b.version from Book b where b.id in :ids")
+    List<Object[]> findVersionsByIdIn(@Param("ids") Collection<Long> ids);
+
+    @Query("select b.id, b.version from Book b join b.authors a where a.id = :authorId")
+    List<Object[]> findVersionsByAuthorId(@Param("authorId") Long authorId);
 }
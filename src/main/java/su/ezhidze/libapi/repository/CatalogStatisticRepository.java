@@ -0,0 +1,23 @@
+package su.ezhidze.libapi.repository;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import su.ezhidze.libapi.entity.CatalogStatistic;
+import su.ezhidze.libapi.index.CatalogCounters;
+
+import java.time.Instant;
+
+public interface CatalogStatisticRepository extends JpaRepository<CatalogStatistic, CatalogStatistic.Key> {
+
+    @Modifying
+    @Query("update CatalogStatistic s set s.amount = :amount, s.checkpointedAt = :checkpointedAt " +
+            "where s.dimension = :dimension and s.bucket = :bucket")
+    int updateAmount(@Param("dimension") CatalogCounters.Dimension dimension, @Param("bucket") Long bucket,
+                     @Param("amount") long amount, @Param("checkpointedAt") Instant checkpointedAt);
+
+    @Modifying
+    @Query("delete from CatalogStatistic s where s.dimension = :dimension and s.bucket = :bucket")
+    int deleteByKey(@Param("dimension") CatalogCounters.Dimension dimension, @Param("bucket") Long bucket);
+}
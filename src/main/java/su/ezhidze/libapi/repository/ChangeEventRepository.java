@@ -0,0 +1,16 @@
+package su.ezhidze.libapi.repository;
+
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import su.ezhidze.libapi.entity.ChangeEvent;
+
+import java.util.List;
+import java.util.Optional;
+
+public interface ChangeEventRepository extends JpaRepository<ChangeEvent, Long> {
+    List<ChangeEvent> findBySeqGreaterThanOrderBySeqAsc(Long seq, Pageable pageable);
+
+    @Query("select max(c.seq) from ChangeEvent c")
+    Optional<Long> findMaxSeq();
+}
@@ -1,8 +1,72 @@
 package su.ezhidze.libapi.repository;
 
-import org.springframework.data.repository.CrudRepository;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import su.ezhidze.libapi.entity.Publisher;
 
-public interface PublisherRepository extends CrudRepository<Publisher, Long> {
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+public interface PublisherRepository extends JpaRepository<Publisher, Long> {
+    @Query("select p.version from Publisher p where p.id = :id")
+    Optional<Long> findVersionById(@Param("id") Long id);
+
+    @Modifying
+    @Query("update Publisher p set p.version = p.version + 1, p.lastModified = :now where p.id in :ids")
+    int incrementVersions(@Param("ids") Collection<Long> ids, @Param("now") Instant now);
+
+    @Modifying
+    @Query("delete from Publisher p where p.id = :id and p.version = :version")
+    int deleteRowByIdAndVersion(@Param("id") Long id, @Param("version") long version);
+
+    @EntityGraph(attributePaths = "books")
+    Optional<Publisher> findWithBooksById(Long id);
+
+    @EntityGraph(attributePaths = "books")
+    List<Publisher> findWithBooksByIdIn(Collection<Long> ids);
+
+    @EntityGraph(attributePaths = "books")
+    List<Publisher> findWithBooksByNameIn(Collection<String> names);
+
+    @EntityGraph(attributePaths = "books")
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"))
     Publisher findByName(String name);
+
+    @Query("select p.id from Publisher p where p.id in :ids")
+    List<Long> findExistingIds(@Param("ids") Collection<Long> ids);
+
+    List<Publisher> findByIdGreaterThanOrderByIdAsc(Long id, Pageable pageable);
+
+    List<Publisher> findAllByOrderByNameAscIdAsc(Pageable pageable);
+
+    @Query("select p from Publisher p where p.name > :name or (p.name = :name and p.id > :id) order by p.name, p.id")
+    List<Publisher> findPageByNameAfter(@Param("name") String name, @Param("id") Long id, Pageable pageable);
+
+    @Query("select p from Publisher p where (p.name is null and p.id > :id) or p.name is not null order by p.name, p.id")
+    List<Publisher> findPageByNullNameAfter(@Param("id") Long id, Pageable pageable);
+
+    @Query("select p from Publisher p where (p.lastModified > :since or (p.lastModified = :since and p.id > :id)) " +
+            "and p.lastModified <= :until order by p.lastModified, p.id")
+    List<Publisher> findModifiedAfter(@Param("since") Instant since, @Param("id") Long id, @Param("until") Instant until, Pageable pageable);
+
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("select p.id, p.name, p.address, b.id from Publisher p left join p.books b order by p.id")
+    Stream<Object[]> streamExportRows();
+
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"))
+    @Query("select p.id, p.name from Publisher p")
+    Stream<Object[]> streamSearchRows();
 }
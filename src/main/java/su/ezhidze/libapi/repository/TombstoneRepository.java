@@ -0,0 +1,19 @@
+package su.ezhidze.libapi.repository;
+
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import su.ezhidze.libapi.entity.Tombstone;
+import su.ezhidze.libapi.event.EntityType;
+
+import java.time.Instant;
+import java.util.List;
+
+public interface TombstoneRepository extends JpaRepository<Tombstone, Long> {
+    @Query("select t from Tombstone t where t.entityType = :type " +
+            "and (t.deletedAt > :since or (t.deletedAt = :since and t.entityId > :id)) and t.deletedAt <= :until " +
+            "order by t.deletedAt, t.entityId")
+    List<Tombstone> findDeletedAfter(@Param("type") EntityType type, @Param("since") Instant since, @Param("id") Long id,
+                                     @Param("until") Instant until, Pageable pageable);
+}
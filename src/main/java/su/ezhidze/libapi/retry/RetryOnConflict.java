@@ -0,0 +1,20 @@
+package su.ezhidze.libapi.retry;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Re-runs a transactional service method when its transaction loses an optimistic-lock race or a
+ * lock wait, with exponential backoff and jitter. Only applies when the method starts its own
+ * transaction; inside an outer transaction the conflict is left to the caller.
+ */
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface RetryOnConflict {
+
+    int maxAttempts() default 5;
+
+    long backoffMillis() default 10;
+}
@@ -0,0 +1,52 @@
+package su.ezhidze.libapi.retry;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.dao.PessimisticLockingFailureException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.util.ClassUtils;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+// Ordered outside the transaction advice (and inside ServiceMetricsAspect), so every attempt gets a
+// fresh transaction and the service timer covers all of them.
+@Aspect
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE + 1)
+public class RetryOnConflictAspect {
+
+    private final MeterRegistry meterRegistry;
+
+    @Autowired
+    public RetryOnConflictAspect(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Around("@annotation(retryOnConflict)")
+    public Object retry(ProceedingJoinPoint joinPoint, RetryOnConflict retryOnConflict) throws Throwable {
+        if (TransactionSynchronizationManager.isActualTransactionActive()) return joinPoint.proceed();
+        String service = ClassUtils.getUserClass(joinPoint.getTarget()).getSimpleName();
+        String method = joinPoint.getSignature().getName();
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return joinPoint.proceed();
+            } catch (OptimisticLockingFailureException | PessimisticLockingFailureException e) {
+                meterRegistry.counter("libapi.retry.conflicts", "service", service, "method", method).increment();
+                if (attempt >= retryOnConflict.maxAttempts()) {
+                    meterRegistry.counter("libapi.retry.exhausted", "service", service, "method", method).increment();
+                    throw e;
+                }
+                meterRegistry.counter("libapi.retry.retries", "service", service, "method", method).increment();
+                long backoff = retryOnConflict.backoffMillis() << (attempt - 1);
+                Thread.sleep(backoff + ThreadLocalRandom.current().nextLong(backoff + 1));
+            }
+        }
+    }
+}
@@ -1,56 +1,137 @@
 package su.ezhidze.libapi.service;
 
-import jakarta.annotation.PostConstruct;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import su.ezhidze.libapi.dto.BatchRequestDto;
+import su.ezhidze.libapi.dto.BatchResultDto;
+import su.ezhidze.libapi.dto.AuthorDto;
+import su.ezhidze.libapi.dto.PageDto;
 import su.ezhidze.libapi.entity.Author;
 import su.ezhidze.libapi.entity.Book;
+import su.ezhidze.libapi.event.ChangeType;
+import su.ezhidze.libapi.event.EntityChangedEvent;
+import su.ezhidze.libapi.event.EntityType;
 import su.ezhidze.libapi.exception.BadArgumentException;
 import su.ezhidze.libapi.exception.DuplicateEntryException;
+import su.ezhidze.libapi.exception.PreconditionFailedException;
 import su.ezhidze.libapi.exception.RecordNotFoundException;
 import su.ezhidze.libapi.repository.AuthorRepository;
 import su.ezhidze.libapi.repository.BookRepository;
+import su.ezhidze.libapi.retry.RetryOnConflict;
 
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
 import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @Service
 @Transactional
 public class AuthorService implements IService<Author> {
 
+    public static final Set<String> FIELDS = Set.of("id", "name", "biography", "bookIds");
+
+    public static final Set<String> EXPANDS = Set.of("books");
+
+    // Fields read straight from the authors row; bookIds comes from book_authors
+    private static final Map<String, String> COLUMNS = new LinkedHashMap<>();
+
+    static {
+        for (String field : List.of("id", "name", "biography")) COLUMNS.put(field, field);
+    }
+
     private final AuthorRepository authorRepository;
 
     private final BookRepository bookRepository;
 
-    private final BookService bookService;
+    private final ApplicationEventPublisher eventPublisher;
+
+    @PersistenceContext
+    private EntityManager entityManager;
 
     @Autowired
     public AuthorService(AuthorRepository authorRepository,
-                         BookRepository bookRepository, BookService bookService) {
+                         BookRepository bookRepository,
+                         ApplicationEventPublisher eventPublisher) {
         this.authorRepository = authorRepository;
         this.bookRepository = bookRepository;
-        this.bookService = bookService;
-    }
-
-    @PostConstruct
-    public void init() {
-        bookService.setAuthorService(this);
+        this.eventPublisher = eventPublisher;
     }
 
     @Override
     public Author create(Author author) {
-        if (author.getName() != null && authorRepository.findByName(author.getName()) != null) {
-            throw new DuplicateEntryException("Author with name " + author.getName() + " already exists");
+        // saveAndFlush would merge an entity that already has an id instead of inserting a new row
+        if (author.getId() != null) {
+            throw new DuplicateEntryException("Author with id " + author.getId() + " already exists");
         }
-        return authorRepository.save(author);
+        Author saved = saveUnique(author);
+        publish(ChangeType.CREATED, saved.getId(), saved);
+        return saved;
     }
 
     @Override
+    @Transactional(readOnly = true)
     public Author read(Long id) {
-        return authorRepository.findById(id)
+        return authorRepository.findWithBooksById(id)
+                .orElseThrow(() -> new RecordNotFoundException("Author with id " + id + " not found"));
+    }
+
+    @Transactional(readOnly = true)
+    public Map<String, Object> readSparse(Long id, FieldSelection selection) {
+        if (selection.expands("books")) {
+            return DtoMapper.toSparseDto(read(id), selection);
+        }
+        Map<String, Object> dto = selection.project(entityManager, Author.class, id, COLUMNS);
+        if (dto == null) {
+            throw new RecordNotFoundException("Author with id " + id + " not found");
+        }
+        if (selection.includes("bookIds")) {
+            try (Stream<Number> ids = bookRepository.streamIdsByAuthorId(id)) {
+                dto.put("bookIds", ids.map(Number::longValue).collect(Collectors.toSet()));
+            }
+        }
+        return dto;
+    }
+
+    @Transactional(readOnly = true)
+    public List<BatchResultDto<AuthorDto>> readBatch(BatchRequestDto request) {
+        if (request.getIds() != null && request.getNames() == null && request.getIsbns() == null) {
+            Set<Long> ids = BatchLookup.distinctKeys(request.getIds());
+            Map<Long, Author> found = ids.isEmpty() ? Map.of() : BatchLookup.index(authorRepository.findWithBooksByIdIn(ids), Author::getId);
+            return BatchLookup.inRequestOrder(request.getIds(), found, DtoMapper::toDto);
+        }
+        if (request.getNames() != null && request.getIds() == null && request.getIsbns() == null) {
+            Set<String> names = BatchLookup.distinctKeys(request.getNames());
+            Map<String, Author> found = names.isEmpty() ? Map.of()
+                    : BatchLookup.index(authorRepository.findWithBooksByNameIn(names), author -> BatchLookup.foldCase(author.getName()));
+            return BatchLookup.inRequestOrder(request.getNames(), found, BatchLookup::foldCase, DtoMapper::toDto);
+        }
+        throw new BadArgumentException("Batch request should contain either ids or names");
+    }
+
+    @Transactional(readOnly = true)
+    public long getVersion(Long id) {
+        // A cached entity answers without touching the database
+        if (entityManager.getEntityManagerFactory().getCache().contains(Author.class, id)) {
+            Optional<Author> cached = authorRepository.findById(id);
+            if (cached.isPresent()) return cached.get().getVersion();
+        }
+        return authorRepository.findVersionById(id)
                 .orElseThrow(() -> new RecordNotFoundException("Author with id " + id + " not found"));
     }
 
+    @Transactional(readOnly = true)
     public Author getAuthorByName(String name) {
         Author author = authorRepository.findByName(name);
         if (author == null) {
@@ -59,6 +140,68 @@ public class AuthorService implements IService<Author> {
         return author;
     }
 
+    @Transactional(readOnly = true)
+    public PageDto<AuthorDto> list(String sort, String cursor, int limit) {
+        return page(sort, cursor, limit).map(DtoMapper::toDto);
+    }
+
+    @Transactional(readOnly = true)
+    public PageDto<Map<String, Object>> listSparse(String sort, String cursor, int limit, FieldSelection selection) {
+        if (!selection.includes("bookIds") && !selection.expands("books")) {
+            return projectPage(sort, cursor, limit, selection);
+        }
+        PageDto<Author> page = page(sort, cursor, limit);
+        if (!page.getItems().isEmpty()) {
+            // Initializes the page's authors in place with one joined query
+            authorRepository.findWithBooksByIdIn(page.getItems().stream().map(Author::getId).toList());
+        }
+        return page.map(author -> DtoMapper.toSparseDto(author, selection));
+    }
+
+    // Without the books association a page is one tuple query over the selected columns
+    private PageDto<Map<String, Object>> projectPage(String sort, String cursor, int limit, FieldSelection selection) {
+        PageCursor.checkLimit(limit);
+        PageCursor after = cursor != null ? PageCursor.decode(cursor, sort) : null;
+        if (!"id".equals(sort) && !"name".equals(sort)) {
+            throw new BadArgumentException("Unsupported sort " + sort);
+        }
+        List<Map<String, Object>> rows = selection.projectPage(entityManager, Author.class, COLUMNS, sort, after,
+                value -> value, limit + 1);
+        return PageCursor.page(rows, limit, row -> new PageCursor(sort, (Long) row.get("id"),
+                        "name".equals(sort) ? (String) row.get("name") : null))
+                .map(row -> {
+                    if (!selection.includes(sort)) row.remove(sort);
+                    return row;
+                });
+    }
+
+    private PageDto<Author> page(String sort, String cursor, int limit) {
+        PageCursor.checkLimit(limit);
+        PageCursor after = cursor != null ? PageCursor.decode(cursor, sort) : null;
+        Pageable pageable = PageRequest.of(0, limit + 1);
+        List<Author> authors = switch (sort) {
+            case "id" -> authorRepository.findByIdGreaterThanOrderByIdAsc(after != null ? after.getId() : 0L, pageable);
+            case "name" -> {
+                if (after == null) yield authorRepository.findAllByOrderByNameAscIdAsc(pageable);
+                if (after.getValue() == null) yield authorRepository.findPageByNullNameAfter(after.getId(), pageable);
+                yield authorRepository.findPageByNameAfter(after.getValue(), after.getId(), pageable);
+            }
+            default -> throw new BadArgumentException("Unsupported sort " + sort);
+        };
+        return PageCursor.page(authors, limit, author -> new PageCursor(sort, author.getId(), "name".equals(sort) ? author.getName() : null));
+    }
+
+    @Transactional(readOnly = true)
+    public long[] getBookIdsByAuthor(Long authorId) {
+        if (!authorRepository.existsById(authorId)) {
+            throw new RecordNotFoundException("Author with id " + authorId + " not found");
+        }
+        try (Stream<Number> ids = bookRepository.streamIdsByAuthorId(authorId)) {
+            return ids.mapToLong(Number::longValue).toArray();
+        }
+    }
+
+    @Transactional(readOnly = true)
     public Set<Book> getBooksByAuthor(Long authorId) {
         Author author = read(authorId);
         return author.getBooks();
@@ -66,23 +209,49 @@ public class AuthorService implements IService<Author> {
 
     @Override
     public Author update(Long id, Author updatedAuthor) {
+        return update(id, updatedAuthor, null);
+    }
+
+    public Author update(Long id, Author updatedAuthor, Long expectedVersion) {
         Author existingAuthor = read(id);
+        checkVersion(existingAuthor, expectedVersion);
         if (updatedAuthor.getName() != null && !updatedAuthor.getName().isBlank()) {
             existingAuthor.setName(updatedAuthor.getName());
         }
         if (updatedAuthor.getBiography() != null) {
             existingAuthor.setBiography(updatedAuthor.getBiography());
         }
-        return authorRepository.save(existingAuthor);
+        Author saved = saveUnique(existingAuthor);
+        publish(ChangeType.UPDATED, id, saved);
+        return saved;
     }
 
     @Override
     public void delete(Long id) {
-        Author author = read(id);
-        for (Book book : author.getBooks()) bookService.removeAuthorFromBook(book.getId(), id);
-        authorRepository.delete(author);
+        delete(id, null);
     }
 
+    public void delete(Long id, Long expectedVersion) {
+        Author author = authorRepository.findById(id)
+                .orElseThrow(() -> new RecordNotFoundException("Author with id " + id + " not found"));
+        checkVersion(author, expectedVersion);
+        // Pending changes go out before the bulk statements; afterwards the context is stale and is dropped
+        entityManager.flush();
+        // Book.authors is the owning side, so every linked book gets a new version before its rows go
+        bookRepository.incrementVersionsByAuthorId(id, Instant.now());
+        // Read while the links still exist, so the change feed gets one event per book that loses the author
+        List<Object[]> unlinked = bookRepository.findVersionsByAuthorId(id);
+        authorRepository.deleteAllBookLinks(id);
+        entityManager.clear();
+        // The version checked above may have moved since; the conditional delete rolls the cascades back then
+        if (authorRepository.deleteRowByIdAndVersion(id, author.getVersion()) == 0) {
+            throw new OptimisticLockingFailureException("Author with id " + id + " was modified concurrently");
+        }
+        for (Object[] row : unlinked) publishLink(ChangeType.UNLINKED, (Long) row[0], (Long) row[1], id);
+        publish(ChangeType.DELETED, id, null);
+    }
+
+    @RetryOnConflict
     public Author addBookToAuthor(Long authorId, Long bookId) {
         Author author = read(authorId);
         Book book = bookRepository.findById(bookId)
@@ -92,10 +261,15 @@ public class AuthorService implements IService<Author> {
         }
         author.getBooks().add(book);
         book.getAuthors().add(author);
-        bookRepository.save(book);
+        book.touch();
+        author.touch();
+        // Flushed here so the event can carry the book's new version
+        bookRepository.saveAndFlush(book);
+        publishLink(ChangeType.LINKED, bookId, book.getVersion(), authorId);
         return author;
     }
 
+    @RetryOnConflict
     public Author removeBookFromAuthor(Long authorId, Long bookId) {
         Author author = read(authorId);
         Book book = bookRepository.findById(bookId)
@@ -105,7 +279,33 @@ public class AuthorService implements IService<Author> {
         }
         author.getBooks().remove(book);
         book.getAuthors().remove(author);
-        bookRepository.save(book);
+        book.touch();
+        author.touch();
+        bookRepository.saveAndFlush(book);
+        publishLink(ChangeType.UNLINKED, bookId, book.getVersion(), authorId);
         return authorRepository.save(author);
     }
+
+    private static void checkVersion(Author author, Long expectedVersion) {
+        if (expectedVersion != null && expectedVersion != author.getVersion()) {
+            throw new PreconditionFailedException("Author with id " + author.getId() + " has version " + author.getVersion());
+        }
+    }
+
+    private Author saveUnique(Author author) {
+        try {
+            return authorRepository.saveAndFlush(author);
+        } catch (DataIntegrityViolationException e) {
+            throw new DuplicateEntryException("Author with name " + author.getName() + " already exists");
+        }
+    }
+
+    private void publish(ChangeType changeType, Long id, Author author) {
+        eventPublisher.publishEvent(new EntityChangedEvent(EntityType.AUTHOR, changeType, id, author));
+    }
+
+    // Relation events are keyed by the book, as the ones BookService publishes
+    private void publishLink(ChangeType changeType, Long bookId, long bookVersion, Long authorId) {
+        eventPublisher.publishEvent(new EntityChangedEvent(EntityType.BOOK, changeType, bookId, bookVersion, EntityType.AUTHOR, authorId));
+    }
 }
@@ -0,0 +1,59 @@
+package su.ezhidze.libapi.service;
+
+import su.ezhidze.libapi.dto.BatchResultDto;
+import su.ezhidze.libapi.exception.BadArgumentException;
+
+import java.util.*;
+import java.util.function.Function;
+
+/**
+ * Multi-get helpers: the distinct keys of a request are resolved with one IN query, and the results are
+ * laid out in request order, repeated keys included, with a not-found marker for keys that matched nothing.
+ */
+final class BatchLookup {
+
+    static final int MAX_BATCH_SIZE = 1000;
+
+    private BatchLookup() {
+    }
+
+    static <K> Set<K> distinctKeys(List<K> keys) {
+        if (keys.size() > MAX_BATCH_SIZE) {
+            throw new BadArgumentException("Batch request should not contain more than " + MAX_BATCH_SIZE + " keys");
+        }
+        Set<K> distinct = new HashSet<>(keys);
+        distinct.remove(null);
+        return distinct;
+    }
+
+    static <K, E> Map<K, E> index(Collection<E> entities, Function<E, K> keyOf) {
+        Map<K, E> index = new HashMap<>();
+        for (E entity : entities) index.put(keyOf.apply(entity), entity);
+        return index;
+    }
+
+    /**
+     * MySQL's default collations compare names and ISBNs case-insensitively, so one row answers every key
+     * that differs from it only in case. String results are indexed and looked up by the folded key.
+     */
+    static String foldCase(String key) {
+        return key.toLowerCase(Locale.ROOT);
+    }
+
+    static <K, E, D> List<BatchResultDto<D>> inRequestOrder(List<K> keys, Map<K, E> found, Function<E, D> toDto) {
+        return inRequestOrder(keys, found, Function.identity(), toDto);
+    }
+
+    static <K, E, D> List<BatchResultDto<D>> inRequestOrder(List<K> keys, Map<K, E> found, Function<K, K> lookupKey,
+                                                          Function<E, D> toDto) {
+        List<BatchResultDto<D>> results = new ArrayList<>(keys.size());
+        // A key requested twice reuses the first mapping
+        Map<E, D> dtos = new IdentityHashMap<>();
+        for (int i = 0; i < keys.size(); i++) {
+            K key = keys.get(i);
+            E entity = key != null ? found.get(lookupKey.apply(key)) : null;
+            results.add(entity != null ? BatchResultDto.found(i, key, dtos.computeIfAbsent(entity, toDto)) : BatchResultDto.notFound(i, key));
+        }
+        return results;
+    }
+}
@@ -1,73 +1,422 @@
 package su.ezhidze.libapi.service;
 
-import lombok.Setter;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import org.hibernate.Hibernate;
+import org.hibernate.SessionFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import su.ezhidze.libapi.dto.BatchRequestDto;
+import su.ezhidze.libapi.dto.BatchResultDto;
+import su.ezhidze.libapi.dto.BookAuthorsDto;
+import su.ezhidze.libapi.dto.BookDto;
+import su.ezhidze.libapi.dto.BulkResultDto;
+import su.ezhidze.libapi.dto.PageDto;
 import su.ezhidze.libapi.entity.Author;
 import su.ezhidze.libapi.entity.Book;
 import su.ezhidze.libapi.entity.Publisher;
+import su.ezhidze.libapi.event.ChangeType;
+import su.ezhidze.libapi.event.EntityChangedEvent;
+import su.ezhidze.libapi.event.EntityType;
 import su.ezhidze.libapi.exception.BadArgumentException;
 import su.ezhidze.libapi.exception.DuplicateEntryException;
+import su.ezhidze.libapi.exception.PreconditionFailedException;
 import su.ezhidze.libapi.exception.RecordNotFoundException;
 import su.ezhidze.libapi.repository.AuthorRepository;
 import su.ezhidze.libapi.repository.BookRepository;
 import su.ezhidze.libapi.repository.PublisherRepository;
+import su.ezhidze.libapi.retry.RetryOnConflict;
+import su.ezhidze.libapi.util.Isbn;
 
-import java.util.Set;
+import java.time.Instant;
+import java.util.*;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @Service
 @Transactional
 public class BookService implements IService<Book> {
 
+    public static final int MAX_BULK_SIZE = 10000;
+
+    public static final Set<String> FIELDS = Set.of("id", "title", "publicationYear", "isbn", "pageCount", "publisherId", "authorIds");
+
+    public static final Set<String> EXPANDS = Set.of("authors", "publisher");
+
+    // Matches spring.jpa.properties.hibernate.jdbc.batch_size
+    private static final int BULK_FLUSH_SIZE = 50;
+
+    // Fields read straight from the books row; authorIds comes from book_authors
+    private static final Map<String, String> COLUMNS = new LinkedHashMap<>();
+
+    static {
+        for (String field : List.of("id", "title", "publicationYear", "isbn", "pageCount")) COLUMNS.put(field, field);
+        COLUMNS.put("publisherId", "publisher.id");
+    }
+
     private final BookRepository bookRepository;
 
     private final AuthorRepository authorRepository;
 
     private final PublisherRepository publisherRepository;
 
-    @Setter
-    private PublisherService publisherService;
+    private final Validator validator;
+
+    private final ApplicationEventPublisher eventPublisher;
+
+    private final IsbnIndexService isbnIndexService;
 
-    @Setter
-    private AuthorService authorService;
+    @PersistenceContext
+    private EntityManager entityManager;
 
     @Autowired
     public BookService(BookRepository bookRepository,
                        AuthorRepository authorRepository,
-                       PublisherRepository publisherRepository) {
+                       PublisherRepository publisherRepository,
+                       Validator validator,
+                       ApplicationEventPublisher eventPublisher,
+                       IsbnIndexService isbnIndexService) {
         this.bookRepository = bookRepository;
         this.authorRepository = authorRepository;
         this.publisherRepository = publisherRepository;
+        this.validator = validator;
+        this.eventPublisher = eventPublisher;
+        this.isbnIndexService = isbnIndexService;
     }
 
     @Override
     public Book create(Book book) {
-        if (book.getIsbn() != null && bookRepository.findByIsbn(book.getIsbn()) != null) {
-            throw new DuplicateEntryException("Book with ISBN " + book.getIsbn() + " already exists");
+        // saveAndFlush would merge an entity that already has an id instead of inserting a new row
+        if (book.getId() != null) {
+            throw new DuplicateEntryException("Book with id " + book.getId() + " already exists");
+        }
+        Book saved = saveUnique(book);
+        publish(ChangeType.CREATED, saved.getId(), saved);
+        return saved;
+    }
+
+    public List<BulkResultDto> bulkCreate(List<BookDto> bookDtos) {
+        if (bookDtos.size() > MAX_BULK_SIZE) {
+            throw new BadArgumentException("Bulk request should not contain more than " + MAX_BULK_SIZE + " books");
+        }
+        Set<String> isbns = bookDtos.stream().map(BookDto::getIsbn).filter(Objects::nonNull).collect(Collectors.toSet());
+        Set<Long> isbn13s = isbns.stream().map(Isbn::toIsbn13).filter(Objects::nonNull).collect(Collectors.toSet());
+        Set<Long> authorIds = bookDtos.stream().filter(dto -> dto.getAuthorIds() != null)
+                .flatMap(dto -> dto.getAuthorIds().stream()).filter(Objects::nonNull).collect(Collectors.toSet());
+        Set<Long> publisherIds = bookDtos.stream().map(BookDto::getPublisherId).filter(Objects::nonNull).collect(Collectors.toSet());
+        Set<Object> existingIsbns = new HashSet<>();
+        if (!isbns.isEmpty()) existingIsbns.addAll(bookRepository.findExistingIsbns(isbns));
+        if (!isbn13s.isEmpty()) existingIsbns.addAll(bookRepository.findExistingIsbn13s(isbn13s));
+        Set<Long> existingAuthorIds = authorIds.isEmpty() ? Set.of() : new HashSet<>(authorRepository.findExistingIds(authorIds));
+        Set<Long> existingPublisherIds = publisherIds.isEmpty() ? Set.of() : new HashSet<>(publisherRepository.findExistingIds(publisherIds));
+
+        BulkResultDto[] results = new BulkResultDto[bookDtos.size()];
+        Set<Object> acceptedIsbns = new HashSet<>();
+        Set<Long> linkedAuthorIds = new HashSet<>();
+        Set<Long> linkedPublisherIds = new HashSet<>();
+        Map<Integer, Book> pending = new LinkedHashMap<>();
+        for (int i = 0; i < bookDtos.size(); i++) {
+            BookDto dto = bookDtos.get(i);
+            String reason = rejectReason(dto, existingIsbns, acceptedIsbns, existingAuthorIds, existingPublisherIds);
+            if (reason != null) {
+                results[i] = BulkResultDto.failed(i, reason);
+                continue;
+            }
+            acceptedIsbns.add(isbnKey(dto.getIsbn()));
+            Book book = DtoMapper.toBook(dto);
+            if (dto.getPublisherId() != null) {
+                book.setPublisher(entityManager.getReference(Publisher.class, dto.getPublisherId()));
+                linkedPublisherIds.add(dto.getPublisherId());
+            }
+            if (dto.getAuthorIds() != null) {
+                for (Long authorId : dto.getAuthorIds()) book.getAuthors().add(entityManager.getReference(Author.class, authorId));
+                linkedAuthorIds.addAll(dto.getAuthorIds());
+            }
+            entityManager.persist(book);
+            pending.put(i, book);
+            if (pending.size() == BULK_FLUSH_SIZE) flushBulk(pending, results);
+        }
+        flushBulk(pending, results);
+        evictInverseCollections(linkedAuthorIds);
+        // The inverse Author.books and Publisher.books sides changed, so their ETags must too
+        Instant now = Instant.now();
+        if (!linkedAuthorIds.isEmpty()) authorRepository.incrementVersions(linkedAuthorIds, now);
+        if (!linkedPublisherIds.isEmpty()) publisherRepository.incrementVersions(linkedPublisherIds, now);
+        return Arrays.asList(results);
+    }
+
+    private String rejectReason(BookDto dto, Set<Object> existingIsbns, Set<Object> acceptedIsbns,
+                                Set<Long> existingAuthorIds, Set<Long> existingPublisherIds) {
+        if (dto == null) {
+            return "Book cannot be null";
+        }
+        Set<ConstraintViolation<BookDto>> violations = validator.validate(dto);
+        if (!violations.isEmpty()) {
+            return violations.iterator().next().getMessage();
+        }
+        if (dto.getIsbn() != null && (existingIsbns.contains(dto.getIsbn()) || existingIsbns.contains(isbnKey(dto.getIsbn()))
+                || acceptedIsbns.contains(isbnKey(dto.getIsbn())))) {
+            return "Book with ISBN " + dto.getIsbn() + " already exists";
+        }
+        if (dto.getPublisherId() != null && !existingPublisherIds.contains(dto.getPublisherId())) {
+            return "Publisher with id " + dto.getPublisherId() + " not found";
+        }
+        if (dto.getAuthorIds() != null) {
+            for (Long authorId : dto.getAuthorIds()) {
+                if (!existingAuthorIds.contains(authorId)) return "Author with id " + authorId + " not found";
+            }
         }
-        return bookRepository.save(book);
+        return null;
+    }
+
+    // Valid ISBNs compare by their ISBN-13 value, anything else by the raw string
+    private static Object isbnKey(String isbn) {
+        Long isbn13 = Isbn.toIsbn13(isbn);
+        return isbn13 != null ? isbn13 : isbn;
+    }
+
+    private void flushBulk(Map<Integer, Book> pending, BulkResultDto[] results) {
+        if (pending.isEmpty()) return;
+        entityManager.flush();
+        pending.forEach((index, book) -> {
+            results[index] = BulkResultDto.created(index, book.getId());
+            publish(ChangeType.CREATED, book.getId(), book);
+        });
+        pending.clear();
+        entityManager.clear();
+    }
+
+    // Bulk inserts only populate the owning Book.authors side, so cached Author.books copies are stale.
+    private void evictInverseCollections(Set<Long> authorIds) {
+        org.hibernate.Cache cache = entityManager.getEntityManagerFactory().unwrap(SessionFactory.class).getCache();
+        for (Long authorId : authorIds) cache.evictCollectionData(Author.class.getName() + ".books", authorId);
     }
 
     @Override
+    @Transactional(readOnly = true)
     public Book read(Long id) {
-        return bookRepository.findById(id)
+        return bookRepository.findWithAuthorsById(id)
                 .orElseThrow(() -> new RecordNotFoundException("Book with id " + id + " not found"));
     }
 
+    @Transactional(readOnly = true)
+    public Map<String, Object> readSparse(Long id, FieldSelection selection) {
+        if (selection.expands("authors") || selection.expands("publisher")) {
+            Book book = bookRepository.findWithAuthorsAndPublisherById(id)
+                    .orElseThrow(() -> new RecordNotFoundException("Book with id " + id + " not found"));
+            return DtoMapper.toSparseDto(book, selection);
+        }
+        Map<String, Object> dto = selection.project(entityManager, Book.class, id, COLUMNS);
+        if (dto == null) {
+            throw new RecordNotFoundException("Book with id " + id + " not found");
+        }
+        if (selection.includes("authorIds")) {
+            try (Stream<Number> ids = bookRepository.streamAuthorIdsById(id)) {
+                dto.put("authorIds", ids.map(Number::longValue).collect(Collectors.toSet()));
+            }
+        }
+        return dto;
+    }
+
+    @Transactional(readOnly = true)
+    public long getVersion(Long id) {
+        // A cached entity answers without touching the database
+        if (entityManager.getEntityManagerFactory().getCache().contains(Book.class, id)) {
+            Optional<Book> cached = bookRepository.findById(id);
+            if (cached.isPresent()) return cached.get().getVersion();
+        }
+        return bookRepository.findVersionById(id)
+                .orElseThrow(() -> new RecordNotFoundException("Book with id " + id + " not found"));
+    }
+
+    @Transactional(readOnly = true)
     public Book getBookByIsbn(String isbn) {
-        Book book = bookRepository.findByIsbn(isbn);
+        Long isbn13 = Isbn.toIsbn13(isbn);
+        Book book = isbn13 != null ? findByIsbn13(isbn13) : null;
+        // Rows written before isbn13 existed, and free-form values, are only reachable by the raw string
+        if (book == null) book = bookRepository.findByIsbn(isbn);
         if (book == null) {
             throw new RecordNotFoundException("Book with ISBN " + isbn + " not found");
         }
         return book;
     }
 
+    /**
+     * Multi-get by {@code ids} or {@code isbns}. Valid ISBNs resolve through isbn13 like {@link #getBookByIsbn},
+     * falling back to the raw string for the keys that missed.
+     */
+    @Transactional(readOnly = true)
+    public List<BatchResultDto<BookDto>> readBatch(BatchRequestDto request) {
+        if (request.getIds() != null && request.getIsbns() == null && request.getNames() == null) {
+            Set<Long> ids = BatchLookup.distinctKeys(request.getIds());
+            Map<Long, Book> found = ids.isEmpty() ? Map.of() : BatchLookup.index(bookRepository.findWithAuthorsByIdIn(ids), Book::getId);
+            return BatchLookup.inRequestOrder(request.getIds(), found, DtoMapper::toDto);
+        }
+        if (request.getIsbns() != null && request.getIds() == null && request.getNames() == null) {
+            Set<String> isbns = BatchLookup.distinctKeys(request.getIsbns());
+            Set<Long> isbn13s = isbns.stream().map(Isbn::toIsbn13).filter(Objects::nonNull).collect(Collectors.toSet());
+            Map<Long, Book> byIsbn13 = isbn13s.isEmpty() ? Map.of()
+                    : BatchLookup.index(bookRepository.findWithAuthorsByIsbn13In(isbn13s), Book::getIsbn13);
+            Map<String, Book> found = new HashMap<>();
+            Set<String> missed = new HashSet<>();
+            for (String isbn : isbns) {
+                Long isbn13 = Isbn.toIsbn13(isbn);
+                Book book = isbn13 != null ? byIsbn13.get(isbn13) : null;
+                if (book != null) found.put(BatchLookup.foldCase(isbn), book);
+                else missed.add(isbn);
+            }
+            if (!missed.isEmpty()) {
+                found.putAll(BatchLookup.index(bookRepository.findWithAuthorsByIsbnIn(missed), book -> BatchLookup.foldCase(book.getIsbn())));
+            }
+            return BatchLookup.inRequestOrder(request.getIsbns(), found, BatchLookup::foldCase, DtoMapper::toDto);
+        }
+        throw new BadArgumentException("Batch request should contain either ids or isbns");
+    }
+
+    private Book findByIsbn13(long isbn13) {
+        Long id = isbnIndexService.find(isbn13);
+        if (id == null) {
+            return isbnIndexService.isLoaded() ? null : bookRepository.findByIsbn13(isbn13);
+        }
+        Book book = bookRepository.findWithAuthorsById(id).orElse(null);
+        if (book != null && Long.valueOf(isbn13).equals(book.getIsbn13())) return book;
+        // A stale entry may shadow the book that holds the isbn13 now
+        isbnIndexService.evict(isbn13, id);
+        return bookRepository.findByIsbn13(isbn13);
+    }
+
+    @Transactional(readOnly = true)
+    public PageDto<BookDto> list(String sort, String cursor, int limit) {
+        return page(sort, cursor, limit).map(DtoMapper::toDto);
+    }
+
+    @Transactional(readOnly = true)
+    public PageDto<Map<String, Object>> listSparse(String sort, String cursor, int limit, FieldSelection selection) {
+        boolean associations = selection.includes("authorIds") || selection.expands("authors") || selection.expands("publisher");
+        if (!associations) {
+            return projectPage(sort, cursor, limit, selection);
+        }
+        PageDto<Book> page = page(sort, cursor, limit);
+        if (!page.getItems().isEmpty()) {
+            // Initializes the page's books in place with one joined query
+            bookRepository.findWithAuthorsAndPublisherByIdIn(page.getItems().stream().map(Book::getId).toList());
+        }
+        return page.map(book -> DtoMapper.toSparseDto(book, selection));
+    }
+
+    // Without associations a page is one tuple query over the selected columns
+    private PageDto<Map<String, Object>> projectPage(String sort, String cursor, int limit, FieldSelection selection) {
+        PageCursor.checkLimit(limit);
+        PageCursor after = cursor != null ? PageCursor.decode(cursor, sort) : null;
+        if (!Set.of("id", "title", "publicationYear").contains(sort)) {
+            throw new BadArgumentException("Unsupported sort " + sort);
+        }
+        List<Map<String, Object>> rows = selection.projectPage(entityManager, Book.class, COLUMNS, sort, after,
+                value -> "publicationYear".equals(sort) ? parseYear(value) : value, limit + 1);
+        return PageCursor.page(rows, limit, row -> new PageCursor(sort, (Long) row.get("id"),
+                        "id".equals(sort) ? null : Objects.toString(row.get(sort), null)))
+                .map(row -> {
+                    if (!selection.includes(sort)) row.remove(sort);
+                    return row;
+                });
+    }
+
+    private PageDto<Book> page(String sort, String cursor, int limit) {
+        PageCursor.checkLimit(limit);
+        PageCursor after = cursor != null ? PageCursor.decode(cursor, sort) : null;
+        Pageable pageable = PageRequest.of(0, limit + 1);
+        List<Book> books = switch (sort) {
+            case "id" -> bookRepository.findByIdGreaterThanOrderByIdAsc(after != null ? after.getId() : 0L, pageable);
+            case "title" -> {
+                if (after == null) yield bookRepository.findAllByOrderByTitleAscIdAsc(pageable);
+                if (after.getValue() == null) yield bookRepository.findPageByNullTitleAfter(after.getId(), pageable);
+                yield bookRepository.findPageByTitleAfter(after.getValue(), after.getId(), pageable);
+            }
+            case "publicationYear" -> after == null
+                    ? bookRepository.findAllByOrderByPublicationYearAscIdAsc(pageable)
+                    : bookRepository.findPageByPublicationYearAfter(parseYear(after.getValue()), after.getId(), pageable);
+            default -> throw new BadArgumentException("Unsupported sort " + sort);
+        };
+        return PageCursor.page(books, limit, book -> new PageCursor(sort, book.getId(), switch (sort) {
+            case "title" -> book.getTitle();
+            case "publicationYear" -> String.valueOf(book.getPublicationYear());
+            default -> null;
+        }));
+    }
+
+    private int parseYear(String value) {
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            throw new BadArgumentException("Invalid cursor");
+        }
+    }
+
+    @Transactional(readOnly = true)
+    public long[] getAuthorIds(Long bookId) {
+        if (!bookRepository.existsById(bookId)) {
+            throw new RecordNotFoundException("Book with id " + bookId + " not found");
+        }
+        try (Stream<Number> ids = bookRepository.streamAuthorIdsById(bookId)) {
+            return ids.mapToLong(Number::longValue).toArray();
+        }
+    }
+
+    /**
+     * Makes the book's author set exactly {@code authorIds} by diffing against book_authors and applying
+     * one delete and one insert...select, without loading either side's collection.
+     */
+    @RetryOnConflict
+    public BookAuthorsDto replaceAuthors(Long bookId, Set<Long> authorIds) {
+        // Set.of(...) rejects contains(null), so look for the null instead
+        if (authorIds.stream().anyMatch(Objects::isNull)) {
+            throw new BadArgumentException("Author id cannot be null");
+        }
+        // Bumping the version first takes the book's row lock, so concurrent replacements apply one after another
+        Instant now = Instant.now();
+        if (bookRepository.incrementVersion(bookId, now) == 0) {
+            throw new RecordNotFoundException("Book with id " + bookId + " not found");
+        }
+        Set<Long> existingAuthorIds = authorIds.isEmpty() ? Set.of() : new HashSet<>(authorRepository.findExistingIds(authorIds));
+        for (Long authorId : authorIds) {
+            if (!existingAuthorIds.contains(authorId)) {
+                throw new RecordNotFoundException("Author with id " + authorId + " not found");
+            }
+        }
+        Set<Long> currentAuthorIds;
+        try (Stream<Number> ids = bookRepository.streamAuthorIdsById(bookId)) {
+            currentAuthorIds = ids.map(Number::longValue).collect(Collectors.toSet());
+        }
+        Set<Long> removed = new HashSet<>(currentAuthorIds);
+        removed.removeAll(authorIds);
+        Set<Long> added = new HashSet<>(authorIds);
+        added.removeAll(currentAuthorIds);
+        if (!removed.isEmpty()) bookRepository.deleteAuthorLinks(bookId, removed);
+        if (!added.isEmpty()) bookRepository.insertAuthorLinks(bookId, added);
+        Set<Long> changed = new HashSet<>(removed);
+        changed.addAll(added);
+        if (!changed.isEmpty()) authorRepository.incrementVersions(changed, now);
+        long version = bookRepository.findVersionById(bookId).orElseThrow();
+        for (Long authorId : removed) publishLink(ChangeType.UNLINKED, bookId, version, EntityType.AUTHOR, authorId);
+        for (Long authorId : added) publishLink(ChangeType.LINKED, bookId, version, EntityType.AUTHOR, authorId);
+        return new BookAuthorsDto(version, authorIds.stream().mapToLong(Long::longValue).sorted().toArray());
+    }
+
+    @Transactional(readOnly = true)
     public Set<Author> getBookAuthors(Long bookId) {
         Book book = read(bookId);
         return book.getAuthors();
     }
 
+    @RetryOnConflict
     public Book setPublisher(Long bookId, Long publisherId) {
         Book book = read(bookId);
         Publisher publisher = publisherRepository.findById(publisherId)
@@ -76,13 +425,23 @@ public class BookService implements IService<Book> {
             throw new BadArgumentException("Book with id " + bookId + " already has a publisher");
         }
         book.setPublisher(publisher);
-        publisher.getBooks().add(book);
-        return bookRepository.save(book);
+        if (Hibernate.isInitialized(publisher.getBooks())) publisher.getBooks().add(book);
+        publisher.touch();
+        // Flushed here so the event can carry the book's new version
+        Book saved = bookRepository.saveAndFlush(book);
+        publishLink(ChangeType.LINKED, bookId, saved.getVersion(), EntityType.PUBLISHER, publisherId);
+        return saved;
     }
 
     @Override
     public Book update(Long id, Book updatedBook) {
+        return update(id, updatedBook, null);
+    }
+
+    public Book update(Long id, Book updatedBook, Long expectedVersion) {
         Book existingBook = read(id);
+        checkVersion(existingBook, expectedVersion);
+        BookDto previous = DtoMapper.toDto(existingBook);
         if (updatedBook.getTitle() != null && !updatedBook.getTitle().isBlank()) {
             existingBook.setTitle(updatedBook.getTitle());
         }
@@ -96,18 +455,42 @@ public class BookService implements IService<Book> {
             existingBook.setPageCount(updatedBook.getPageCount());
         }
 
-        return bookRepository.save(existingBook);
+        Book saved = saveUnique(existingBook);
+        eventPublisher.publishEvent(new EntityChangedEvent(EntityType.BOOK, ChangeType.UPDATED, id, saved, previous, saved.getVersion()));
+        return saved;
     }
 
     @Override
     public void delete(Long id) {
+        delete(id, null);
+    }
+
+    public void delete(Long id, Long expectedVersion) {
         Book book = read(id);
-        for (Author author : book.getAuthors()) authorService.removeBookFromAuthor(author.getId(), id);
-        if (book.getPublisher() != null)
-            publisherService.removeBookFromPublisher(book.getPublisher().getId(), book.getId());
-        bookRepository.delete(read(id));
+        checkVersion(book, expectedVersion);
+        BookDto previous = DtoMapper.toDto(book);
+        // Pending changes go out before the bulk statements; afterwards the context is stale and is dropped
+        entityManager.flush();
+        // The authors and the publisher lose this book from their lists, so their ETags move with it
+        Instant now = Instant.now();
+        authorRepository.incrementVersionsByBookId(id, now);
+        Long publisherId = book.getPublisher() != null ? book.getPublisher().getId() : null;
+        if (publisherId != null) publisherRepository.incrementVersions(List.of(publisherId), now);
+        // Read while the links still exist; the authors and the publisher each get an event keyed by themselves
+        List<Object[]> unlinkedAuthors = authorRepository.findVersionsByBookId(id);
+        Long publisherVersion = publisherId != null ? publisherRepository.findVersionById(publisherId).orElse(null) : null;
+        bookRepository.deleteAllAuthorLinks(id);
+        entityManager.clear();
+        // The version checked above may have moved since; the conditional delete rolls the cascades back then
+        if (bookRepository.deleteRowByIdAndVersion(id, book.getVersion()) == 0) {
+            throw new OptimisticLockingFailureException("Book with id " + id + " was modified concurrently");
+        }
+        for (Object[] row : unlinkedAuthors) publishUnlinked(EntityType.AUTHOR, (Long) row[0], (Long) row[1], id);
+        if (publisherVersion != null) publishUnlinked(EntityType.PUBLISHER, publisherId, publisherVersion, id);
+        eventPublisher.publishEvent(new EntityChangedEvent(EntityType.BOOK, ChangeType.DELETED, id, null, previous, book.getVersion()));
     }
 
+    @RetryOnConflict
     public Book addAuthorToBook(Long bookId, Long authorId) {
         Book book = read(bookId);
         Author author = authorRepository.findById(authorId)
@@ -117,9 +500,15 @@ public class BookService implements IService<Book> {
         }
         book.getAuthors().add(author);
         author.getBooks().add(book);
-        return bookRepository.save(book);
+        // Touching both sides is what moves the inverse side's version, and both lastModified stamps
+        book.touch();
+        author.touch();
+        Book saved = bookRepository.saveAndFlush(book);
+        publishLink(ChangeType.LINKED, bookId, saved.getVersion(), EntityType.AUTHOR, authorId);
+        return saved;
     }
 
+    @RetryOnConflict
     public Book removeAuthorFromBook(Long bookId, Long authorId) {
         Book book = read(bookId);
         Author author = authorRepository.findById(authorId)
@@ -129,6 +518,38 @@ public class BookService implements IService<Book> {
         }
         book.getAuthors().remove(author);
         author.getBooks().remove(book);
-        return bookRepository.save(book);
+        book.touch();
+        author.touch();
+        Book saved = bookRepository.saveAndFlush(book);
+        publishLink(ChangeType.UNLINKED, bookId, saved.getVersion(), EntityType.AUTHOR, authorId);
+        return saved;
+    }
+
+    private static void checkVersion(Book book, Long expectedVersion) {
+        if (expectedVersion != null && expectedVersion != book.getVersion()) {
+            throw new PreconditionFailedException("Book with id " + book.getId() + " has version " + book.getVersion());
+        }
+    }
+
+    // uk_books_isbn and uk_books_isbn13 are the only constraints a book insert or update can violate
+    private Book saveUnique(Book book) {
+        try {
+            return bookRepository.saveAndFlush(book);
+        } catch (DataIntegrityViolationException e) {
+            throw new DuplicateEntryException("Book with ISBN " + book.getIsbn() + " already exists");
+        }
+    }
+
+    private void publish(ChangeType changeType, Long id, Book book) {
+        eventPublisher.publishEvent(new EntityChangedEvent(EntityType.BOOK, changeType, id, book));
+    }
+
+    private void publishLink(ChangeType changeType, Long bookId, long bookVersion, EntityType relatedType, Long relatedId) {
+        eventPublisher.publishEvent(new EntityChangedEvent(EntityType.BOOK, changeType, bookId, bookVersion, relatedType, relatedId));
+    }
+
+    // A deleted book has no side left to key its relation events by, so they are keyed by the other side
+    private void publishUnlinked(EntityType entityType, Long id, long version, Long bookId) {
+        eventPublisher.publishEvent(new EntityChangedEvent(entityType, ChangeType.UNLINKED, id, version, EntityType.BOOK, bookId));
     }
 }
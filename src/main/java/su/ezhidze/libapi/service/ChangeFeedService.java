@@ -0,0 +1,203 @@
+package su.ezhidze.libapi.service;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import su.ezhidze.libapi.dto.ChangeEventDto;
+import su.ezhidze.libapi.entity.ChangeEvent;
+import su.ezhidze.libapi.event.EntityChangedEvent;
+import su.ezhidze.libapi.exception.BadArgumentException;
+import su.ezhidze.libapi.repository.ChangeEventRepository;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Transactional outbox behind the change feed. Every {@link EntityChangedEvent} becomes a change_events
+ * row inside the publishing transaction, and readers page through the rows by sequence offset.
+ * <p>
+ * Offsets are assigned at insert but become visible at commit, so a reader may see offset n + 1 before n,
+ * and a rollback leaves a gap that never fills. Reads stop in front of a gap until the settle time has
+ * passed since this instance first saw it; by then the missing offsets are taken to be rollbacks and
+ * skipped. The settle time must exceed the longest write transaction.
+ */
+@Slf4j
+@Service
+public class ChangeFeedService {
+
+    public static final int MAX_BATCH_SIZE = 1000;
+
+    private final ChangeEventRepository changeEventRepository;
+
+    private final Duration settleTime;
+
+    private final Duration pollInterval;
+
+    private final Duration heartbeat;
+
+    private final int streamBatchSize;
+
+    private final ExecutorService streams = Executors.newVirtualThreadPerTaskExecutor();
+
+    private final ReentrantLock lock = new ReentrantLock();
+
+    private final Condition committed = lock.newCondition();
+
+    // When each open gap was first seen, keyed by the offset of the row right after it
+    private final ConcurrentHashMap<Long, Long> gapsSeenAt = new ConcurrentHashMap<>();
+
+    // Gaps ending at or below this offset were skipped already
+    private final AtomicLong settledThrough = new AtomicLong();
+
+    private long commits;
+
+    private volatile boolean closed;
+
+    @Autowired
+    public ChangeFeedService(ChangeEventRepository changeEventRepository,
+                             @Value("${libapi.changes.settle-time:5s}") Duration settleTime,
+                             @Value("${libapi.changes.poll-interval:1s}") Duration pollInterval,
+                             @Value("${libapi.changes.heartbeat:15s}") Duration heartbeat,
+                             @Value("${libapi.changes.stream-batch-size:500}") int streamBatchSize) {
+        this.changeEventRepository = changeEventRepository;
+        this.settleTime = settleTime;
+        this.pollInterval = pollInterval;
+        this.heartbeat = heartbeat;
+        this.streamBatchSize = streamBatchSize;
+    }
+
+    // Synchronous, so the row commits or rolls back with the change it records
+    @EventListener
+    public void record(EntityChangedEvent event) {
+        changeEventRepository.save(new ChangeEvent(null, event.getEntityType(), event.getChangeType(), event.getId(),
+                event.getRelatedType(), event.getRelatedId(), Instant.now()));
+    }
+
+    @TransactionalEventListener
+    public void onCommitted(EntityChangedEvent event) {
+        lock.lock();
+        try {
+            commits++;
+            committed.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Transactional(readOnly = true)
+    public List<ChangeEventDto> read(long after, int limit) {
+        if (limit < 1 || limit > MAX_BATCH_SIZE) {
+            throw new BadArgumentException("Limit should be between 1 and " + MAX_BATCH_SIZE);
+        }
+        List<ChangeEvent> rows = changeEventRepository.findBySeqGreaterThanOrderBySeqAsc(after, PageRequest.of(0, limit));
+        List<ChangeEventDto> events = new ArrayList<>(rows.size());
+        long expected = after + 1;
+        for (ChangeEvent row : rows) {
+            if (row.getSeq() != expected && !settled(row.getSeq())) break;
+            events.add(new ChangeEventDto(row.getSeq(), row.getEntityType(), row.getChangeType(), row.getEntityId(),
+                    row.getRelatedType(), row.getRelatedId(), row.getCreatedAt()));
+            expected = row.getSeq() + 1;
+        }
+        return events;
+    }
+
+    private boolean settled(long gapEnd) {
+        if (gapEnd <= settledThrough.get()) return true;
+        long now = System.nanoTime();
+        if (now - gapsSeenAt.computeIfAbsent(gapEnd, seq -> now) < settleTime.toNanos()) return false;
+        settledThrough.accumulateAndGet(gapEnd, Math::max);
+        gapsSeenAt.keySet().removeIf(seq -> seq <= gapEnd);
+        return true;
+    }
+
+    @Transactional(readOnly = true)
+    public long head() {
+        return changeEventRepository.findMaxSeq().orElse(0L);
+    }
+
+    /**
+     * Streams events after {@code after}, or only new ones when it is {@code null}. Each SSE event id is the
+     * offset, so a reconnecting client resumes through Last-Event-ID.
+     */
+    public SseEmitter stream(Long after) {
+        SseEmitter emitter = new SseEmitter(0L);
+        long start = after != null ? after : head();
+        streams.submit(() -> pump(emitter, start));
+        return emitter;
+    }
+
+    private void pump(SseEmitter emitter, long after) {
+        long lastSent = System.nanoTime();
+        try {
+            while (!closed) {
+                long seen = commits();
+                List<ChangeEventDto> events = read(after, streamBatchSize);
+                for (ChangeEventDto event : events) {
+                    emitter.send(SseEmitter.event().id(String.valueOf(event.getSeq())).name("change")
+                            .data(event, MediaType.APPLICATION_JSON));
+                    after = event.getSeq();
+                }
+                if (!events.isEmpty()) lastSent = System.nanoTime();
+                if (events.size() == streamBatchSize) continue;
+                if (System.nanoTime() - lastSent >= heartbeat.toNanos()) {
+                    // Also how a disconnected client is noticed
+                    emitter.send(SseEmitter.event().comment("heartbeat"));
+                    lastSent = System.nanoTime();
+                }
+                awaitCommit(seen);
+            }
+            emitter.complete();
+        } catch (IOException | IllegalStateException e) {
+            log.debug("Change stream closed at offset {}: {}", after, e.getMessage());
+        } catch (InterruptedException e) {
+            emitter.complete();
+        } catch (RuntimeException e) {
+            emitter.completeWithError(e);
+        }
+    }
+
+    private long commits() {
+        lock.lock();
+        try {
+            return commits;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Wakes on a local commit or after the poll interval, which picks up other instances' writes and settling gaps
+    private void awaitCommit(long seen) throws InterruptedException {
+        lock.lock();
+        try {
+            long remaining = pollInterval.toNanos();
+            while (commits == seen && remaining > 0) remaining = committed.awaitNanos(remaining);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @PreDestroy
+    public void close() throws InterruptedException {
+        closed = true;
+        streams.shutdownNow();
+        streams.awaitTermination(5, TimeUnit.SECONDS);
+    }
+}
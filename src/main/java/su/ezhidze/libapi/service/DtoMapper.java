@@ -0,0 +1,107 @@
+package su.ezhidze.libapi.service;
+
+import su.ezhidze.libapi.dto.AuthorDto;
+import su.ezhidze.libapi.dto.BookDto;
+import su.ezhidze.libapi.dto.PublisherDto;
+import su.ezhidze.libapi.entity.Author;
+import su.ezhidze.libapi.entity.Book;
+import su.ezhidze.libapi.entity.Publisher;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Entity/DTO mapping. Open-session-in-view is disabled, so every association touched here must
+ * already be initialized by the fetch plan of the service method that returned the entity.
+ */
+public final class DtoMapper {
+
+    // Embedded relations carry their own columns only, never their collections
+    private static final FieldSelection EMBEDDED_AUTHOR = FieldSelection.of("name", "biography");
+
+    private static final FieldSelection EMBEDDED_BOOK = FieldSelection.of("title", "publicationYear", "isbn", "pageCount");
+
+    private DtoMapper() {
+    }
+
+    public static BookDto toDto(Book book) {
+        Long publisherId = (book.getPublisher() != null) ? book.getPublisher().getId() : null;
+        Set<Long> authorIds = book.getAuthors().stream().map(Author::getId).collect(Collectors.toSet());
+        return new BookDto(book.getId(), book.getTitle(), book.getPublicationYear(), book.getIsbn(), book.getPageCount(), publisherId, authorIds);
+    }
+
+    public static AuthorDto toDto(Author author) {
+        Set<Long> bookIds = author.getBooks().stream().map(Book::getId).collect(Collectors.toSet());
+        return new AuthorDto(author.getId(), author.getName(), author.getBiography(), bookIds);
+    }
+
+    public static PublisherDto toDto(Publisher publisher) {
+        Set<Long> bookIds = publisher.getBooks().stream().map(Book::getId).collect(Collectors.toSet());
+        return new PublisherDto(publisher.getId(), publisher.getName(), publisher.getAddress(), bookIds);
+    }
+
+    /**
+     * Sparse variant of {@link #toDto(Book)}: associations are only touched when their ids are selected or
+     * they are expanded.
+     */
+    public static Map<String, Object> toSparseDto(Book book, FieldSelection selection) {
+        Map<String, Object> dto = new LinkedHashMap<>();
+        dto.put("id", book.getId());
+        if (selection.includes("title")) dto.put("title", book.getTitle());
+        if (selection.includes("publicationYear")) dto.put("publicationYear", book.getPublicationYear());
+        if (selection.includes("isbn")) dto.put("isbn", book.getIsbn());
+        if (selection.includes("pageCount")) dto.put("pageCount", book.getPageCount());
+        if (selection.includes("publisherId")) dto.put("publisherId", book.getPublisher() != null ? book.getPublisher().getId() : null);
+        if (selection.includes("authorIds")) dto.put("authorIds", book.getAuthors().stream().map(Author::getId).collect(Collectors.toSet()));
+        if (selection.expands("authors")) {
+            dto.put("authors", book.getAuthors().stream().map(author -> toSparseDto(author, EMBEDDED_AUTHOR)).toList());
+        }
+        if (selection.expands("publisher")) dto.put("publisher", book.getPublisher() != null ? toEmbedded(book.getPublisher()) : null);
+        return dto;
+    }
+
+    public static Map<String, Object> toSparseDto(Author author, FieldSelection selection) {
+        Map<String, Object> dto = new LinkedHashMap<>();
+        dto.put("id", author.getId());
+        if (selection.includes("name")) dto.put("name", author.getName());
+        if (selection.includes("biography")) dto.put("biography", author.getBiography());
+        if (selection.includes("bookIds")) dto.put("bookIds", author.getBooks().stream().map(Book::getId).collect(Collectors.toSet()));
+        if (selection.expands("books")) {
+            dto.put("books", author.getBooks().stream().map(book -> toSparseDto(book, EMBEDDED_BOOK)).toList());
+        }
+        return dto;
+    }
+
+    private static Map<String, Object> toEmbedded(Publisher publisher) {
+        Map<String, Object> dto = new LinkedHashMap<>();
+        dto.put("id", publisher.getId());
+        dto.put("name", publisher.getName());
+        dto.put("address", publisher.getAddress());
+        return dto;
+    }
+
+    public static Book toBook(BookDto dto) {
+        Book book = new Book();
+        book.setTitle(dto.getTitle());
+        book.setPublicationYear(dto.getPublicationYear());
+        book.setIsbn(dto.getIsbn());
+        book.setPageCount(dto.getPageCount());
+        return book;
+    }
+
+    public static Author toAuthor(AuthorDto dto) {
+        Author author = new Author();
+        author.setName(dto.getName());
+        author.setBiography(dto.getBiography());
+        return author;
+    }
+
+    public static Publisher toPublisher(PublisherDto dto) {
+        Publisher publisher = new Publisher();
+        publisher.setName(dto.getName());
+        publisher.setAddress(dto.getAddress());
+        return publisher;
+    }
+}
@@ -0,0 +1,103 @@
+package su.ezhidze.libapi.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import su.ezhidze.libapi.dto.AuthorDto;
+import su.ezhidze.libapi.dto.BookDto;
+import su.ezhidze.libapi.dto.PublisherDto;
+import su.ezhidze.libapi.repository.AuthorRepository;
+import su.ezhidze.libapi.repository.BookRepository;
+import su.ezhidze.libapi.repository.PublisherRepository;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+@Service
+@Transactional(readOnly = true)
+public class ExportService {
+
+    private static final int FLUSH_EVERY = 1000;
+
+    private static final byte NEWLINE = '\n';
+
+    private final BookRepository bookRepository;
+
+    private final AuthorRepository authorRepository;
+
+    private final PublisherRepository publisherRepository;
+
+    private final ObjectMapper objectMapper;
+
+    @Autowired
+    public ExportService(BookRepository bookRepository, AuthorRepository authorRepository,
+                         PublisherRepository publisherRepository, ObjectMapper objectMapper) {
+        this.bookRepository = bookRepository;
+        this.authorRepository = authorRepository;
+        this.publisherRepository = publisherRepository;
+        this.objectMapper = objectMapper;
+    }
+
+    public void exportBooks(OutputStream out) throws IOException {
+        try (Stream<Object[]> rows = bookRepository.streamExportRows()) {
+            write(rows, out, BookDto.class,
+                    row -> new BookDto((Long) row[0], (String) row[1], (Integer) row[2], (String) row[3],
+                            (Integer) row[4], (Long) row[5], new HashSet<>()),
+                    (dto, authorId) -> dto.getAuthorIds().add(authorId));
+        }
+    }
+
+    public void exportAuthors(OutputStream out) throws IOException {
+        try (Stream<Object[]> rows = authorRepository.streamExportRows()) {
+            write(rows, out, AuthorDto.class,
+                    row -> new AuthorDto((Long) row[0], (String) row[1], (String) row[2], new HashSet<>()),
+                    (dto, bookId) -> dto.getBookIds().add(bookId));
+        }
+    }
+
+    public void exportPublishers(OutputStream out) throws IOException {
+        try (Stream<Object[]> rows = publisherRepository.streamExportRows()) {
+            write(rows, out, PublisherDto.class,
+                    row -> new PublisherDto((Long) row[0], (String) row[1], (String) row[2], new HashSet<>()),
+                    (dto, bookId) -> dto.getBookIds().add(bookId));
+        }
+    }
+
+    // Rows arrive ordered by owner id with one row per related id, so a DTO is complete as soon
+    // as the owner id changes and only one of them is ever held in memory.
+    private <T> void write(Stream<Object[]> rows, OutputStream out, Class<T> type,
+                           Function<Object[], T> toDto, BiConsumer<T, Long> addRelatedId) throws IOException {
+        ObjectWriter writer = objectMapper.writerFor(type);
+        Iterator<Object[]> iterator = rows.iterator();
+        Object currentId = null;
+        T current = null;
+        long written = 0;
+        while (iterator.hasNext()) {
+            Object[] row = iterator.next();
+            if (!row[0].equals(currentId)) {
+                if (current != null) {
+                    writeLine(writer, current, out);
+                    if (++written % FLUSH_EVERY == 0) out.flush();
+                }
+                currentId = row[0];
+                current = toDto.apply(row);
+            }
+            Object relatedId = row[row.length - 1];
+            if (relatedId != null) addRelatedId.accept(current, (Long) relatedId);
+        }
+        if (current != null) writeLine(writer, current, out);
+        out.flush();
+    }
+
+    private void writeLine(ObjectWriter writer, Object value, OutputStream out) throws IOException {
+        out.write(writer.writeValueAsBytes(value));
+        out.write(NEWLINE);
+    }
+}
@@ -0,0 +1,134 @@
+package su.ezhidze.libapi.service;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.Tuple;
+import jakarta.persistence.TupleElement;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Expression;
+import jakarta.persistence.criteria.Path;
+import jakarta.persistence.criteria.Root;
+import jakarta.persistence.criteria.Selection;
+import su.ezhidze.libapi.exception.BadArgumentException;
+
+import java.util.*;
+import java.util.function.Function;
+
+/**
+ * The {@code fields} and {@code expand} parameters of a read endpoint. Without {@code fields} every field
+ * is returned; {@code id} is always returned.
+ */
+public class FieldSelection {
+
+    private static final String ID = "id";
+
+    private final Set<String> fields;
+
+    private final Set<String> expand;
+
+    private FieldSelection(Set<String> fields, Set<String> expand) {
+        this.fields = fields;
+        this.expand = expand;
+    }
+
+    public static FieldSelection parse(String fields, String expand, Set<String> allowedFields, Set<String> allowedExpand) {
+        return new FieldSelection(fields != null ? split(fields, allowedFields, "field") : null,
+                expand != null ? split(expand, allowedExpand, "expansion") : Set.of());
+    }
+
+    public static FieldSelection of(String... fields) {
+        return new FieldSelection(Set.of(fields), Set.of());
+    }
+
+    private static Set<String> split(String value, Set<String> allowed, String kind) {
+        Set<String> names = new LinkedHashSet<>();
+        for (String name : value.split(",")) {
+            name = name.trim();
+            if (name.isEmpty()) continue;
+            if (!allowed.contains(name)) {
+                throw new BadArgumentException("Unknown " + kind + " " + name + ", expected one of " + new TreeSet<>(allowed));
+            }
+            names.add(name);
+        }
+        return names;
+    }
+
+    public boolean isDefault() {
+        return fields == null && expand.isEmpty();
+    }
+
+    public boolean includes(String field) {
+        return ID.equals(field) || fields == null || fields.contains(field);
+    }
+
+    public boolean expands(String association) {
+        return expand.contains(association);
+    }
+
+    /**
+     * Selects only the included columns of one row. {@code columns} maps field names to attribute paths,
+     * where a path through a to-one association such as {@code publisher.id} reads the foreign key
+     * without a join.
+     */
+    Map<String, Object> project(EntityManager entityManager, Class<?> entityClass, Long id, Map<String, String> columns) {
+        CriteriaBuilder builder = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Tuple> query = builder.createTupleQuery();
+        Root<?> root = query.from(entityClass);
+        query.multiselect(selections(root, columns, ID)).where(builder.equal(root.get(ID), id));
+        List<Tuple> rows = entityManager.createQuery(query).getResultList();
+        return rows.isEmpty() ? null : toMap(rows.get(0));
+    }
+
+    /**
+     * Selects the included columns of one keyset page ordered by {@code sort} and then id, with the same
+     * predicates as the repositories' page queries. The sort column is always selected because the next
+     * cursor is built from it; {@code parseValue} turns the cursor's value back into the attribute's type.
+     */
+    @SuppressWarnings("unchecked")
+    List<Map<String, Object>> projectPage(EntityManager entityManager, Class<?> entityClass, Map<String, String> columns,
+                                          String sort, PageCursor after, Function<String, ?> parseValue, int rows) {
+        CriteriaBuilder builder = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Tuple> query = builder.createTupleQuery();
+        Root<?> root = query.from(entityClass);
+        query.multiselect(selections(root, columns, sort));
+        Path<Long> id = root.get(ID);
+        if (ID.equals(sort)) {
+            if (after != null) query.where(builder.gt(id, after.getId()));
+            query.orderBy(builder.asc(id));
+        } else {
+            Expression<Comparable<Object>> value = (Expression<Comparable<Object>>) (Expression<?>) root.get(sort);
+            if (after != null && after.getValue() == null) {
+                query.where(builder.or(builder.and(builder.isNull(value), builder.gt(id, after.getId())),
+                        builder.isNotNull(value)));
+            } else if (after != null) {
+                Comparable<Object> bound = (Comparable<Object>) parseValue.apply(after.getValue());
+                query.where(builder.or(builder.greaterThan(value, bound),
+                        builder.and(builder.equal(value, bound), builder.gt(id, after.getId()))));
+            }
+            query.orderBy(builder.asc(value), builder.asc(id));
+        }
+        return entityManager.createQuery(query).setMaxResults(rows).getResultList().stream()
+                .map(FieldSelection::toMap)
+                .toList();
+    }
+
+    private List<Selection<?>> selections(Root<?> root, Map<String, String> columns, String required) {
+        List<Selection<?>> selections = new ArrayList<>();
+        columns.forEach((field, attribute) -> {
+            if (includes(field) || field.equals(required)) selections.add(path(root, attribute).alias(field));
+        });
+        return selections;
+    }
+
+    private static Map<String, Object> toMap(Tuple tuple) {
+        Map<String, Object> row = new LinkedHashMap<>();
+        for (TupleElement<?> element : tuple.getElements()) row.put(element.getAlias(), tuple.get(element));
+        return row;
+    }
+
+    private static Path<?> path(Root<?> root, String attribute) {
+        Path<?> path = root;
+        for (String part : attribute.split("\\.")) path = path.get(part);
+        return path;
+    }
+}
@@ -0,0 +1,75 @@
+package su.ezhidze.libapi.service;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionalEventListener;
+import su.ezhidze.libapi.entity.Book;
+import su.ezhidze.libapi.event.EntityChangedEvent;
+import su.ezhidze.libapi.event.EntityType;
+import su.ezhidze.libapi.index.LongLongHashMap;
+import su.ezhidze.libapi.repository.BookRepository;
+
+import java.util.stream.Stream;
+
+/**
+ * In-memory ISBN-13 to book id map kept in front of the isbn13 unique index. Entries are only hints:
+ * updates and deletes are not tracked eagerly, so callers verify a hit against the book itself and
+ * evict it when it no longer matches. Every committed isbn13 is added, so once loaded a miss is definite,
+ * provided all writes go through this instance; the index is only meant for such deployments.
+ */
+@Service
+public class IsbnIndexService {
+
+    private final LongLongHashMap index = new LongLongHashMap();
+
+    private final BookRepository bookRepository;
+
+    private final boolean enabled;
+
+    private volatile boolean loaded;
+
+    @Autowired
+    public IsbnIndexService(BookRepository bookRepository, @Value("${libapi.isbn-index.enabled:false}") boolean enabled) {
+        this.bookRepository = bookRepository;
+        this.enabled = enabled;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional(readOnly = true)
+    public void rebuild() {
+        if (!enabled) return;
+        index.clear();
+        try (Stream<Object[]> rows = bookRepository.streamIsbn13Rows()) {
+            rows.forEach(row -> index.put((Long) row[0], (Long) row[1]));
+        }
+        loaded = true;
+    }
+
+    @TransactionalEventListener
+    public void onEntityChanged(EntityChangedEvent event) {
+        if (!enabled || event.getEntityType() != EntityType.BOOK) return;
+        if (event.getEntity() instanceof Book book && book.getIsbn13() != null) index.put(book.getIsbn13(), book.getId());
+    }
+
+    public Long find(long isbn13) {
+        if (!enabled) return null;
+        long id = index.get(isbn13);
+        return id == LongLongHashMap.MISSING ? null : id;
+    }
+
+    public boolean isLoaded() {
+        return enabled && loaded;
+    }
+
+    public void evict(long isbn13, long bookId) {
+        if (enabled) index.remove(isbn13, bookId);
+    }
+
+    public int size() {
+        return index.size();
+    }
+}
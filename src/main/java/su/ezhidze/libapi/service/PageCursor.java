@@ -0,0 +1,71 @@
+package su.ezhidze.libapi.service;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import su.ezhidze.libapi.dto.PageDto;
+import su.ezhidze.libapi.exception.BadArgumentException;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Opaque keyset position: the sort key, the id of the last returned row and, for
+ * non-id sorts, the value of the sort column on that row.
+ */
+@Getter
+@AllArgsConstructor
+public class PageCursor {
+
+    public static final int MAX_PAGE_SIZE = 1000;
+
+    private static final String SEPARATOR = "|";
+
+    private final String sort;
+
+    private final Long id;
+
+    private final String value;
+
+    public String encode() {
+        String raw = sort + SEPARATOR + id + (value != null ? SEPARATOR + value : "");
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static PageCursor decode(String token, String expectedSort) {
+        PageCursor cursor;
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            String[] parts = raw.split("\\|", 3);
+            if (parts.length < 2) {
+                throw new BadArgumentException("Invalid cursor " + token);
+            }
+            cursor = new PageCursor(parts[0], Long.valueOf(parts[1]), parts.length == 3 ? parts[2] : null);
+        } catch (IllegalArgumentException e) {
+            throw new BadArgumentException("Invalid cursor " + token);
+        }
+        if (!cursor.getSort().equals(expectedSort)) {
+            throw new BadArgumentException("Cursor was issued for sort " + cursor.getSort() + ", not " + expectedSort);
+        }
+        return cursor;
+    }
+
+    public static void checkLimit(int limit) {
+        if (limit < 1 || limit > MAX_PAGE_SIZE) {
+            throw new BadArgumentException("Limit should be between 1 and " + MAX_PAGE_SIZE);
+        }
+    }
+
+    /**
+     * Rows are expected to be fetched with {@code limit + 1}; the extra row only signals
+     * that another page exists and is never returned.
+     */
+    public static <T> PageDto<T> page(List<T> rows, int limit, Function<T, PageCursor> cursorOf) {
+        if (rows.size() <= limit) {
+            return new PageDto<>(rows, null);
+        }
+        List<T> items = rows.subList(0, limit);
+        return new PageDto<>(items, cursorOf.apply(items.get(limit - 1)).encode());
+    }
+}
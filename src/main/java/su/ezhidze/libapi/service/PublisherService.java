@@ -1,19 +1,38 @@
 package su.ezhidze.libapi.service;
 
-import jakarta.annotation.PostConstruct;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
-import su.ezhidze.libapi.entity.Author;
+import su.ezhidze.libapi.dto.BatchRequestDto;
+import su.ezhidze.libapi.dto.BatchResultDto;
+import su.ezhidze.libapi.dto.PublisherDto;
+import su.ezhidze.libapi.dto.PageDto;
 import su.ezhidze.libapi.entity.Book;
 import su.ezhidze.libapi.entity.Publisher;
+import su.ezhidze.libapi.event.ChangeType;
+import su.ezhidze.libapi.event.EntityChangedEvent;
+import su.ezhidze.libapi.event.EntityType;
 import su.ezhidze.libapi.exception.BadArgumentException;
 import su.ezhidze.libapi.exception.DuplicateEntryException;
+import su.ezhidze.libapi.exception.PreconditionFailedException;
 import su.ezhidze.libapi.exception.RecordNotFoundException;
 import su.ezhidze.libapi.repository.BookRepository;
 import su.ezhidze.libapi.repository.PublisherRepository;
+import su.ezhidze.libapi.retry.RetryOnConflict;
 
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
 import java.util.Set;
+import java.util.stream.Stream;
 
 @Service
 @Transactional
@@ -23,38 +42,66 @@ public class PublisherService implements IService<Publisher> {
 
     private final BookRepository bookRepository;
 
-    private final BookService bookService;
+    private final ApplicationEventPublisher eventPublisher;
 
-    private final AuthorService authorService;
+    @PersistenceContext
+    private EntityManager entityManager;
 
     @Autowired
     public PublisherService(PublisherRepository publisherRepository,
-                            BookRepository bookRepository, BookService bookService, AuthorService authorService) {
+                            BookRepository bookRepository,
+                            ApplicationEventPublisher eventPublisher) {
         this.publisherRepository = publisherRepository;
         this.bookRepository = bookRepository;
-        this.bookService = bookService;
-        this.authorService = authorService;
-    }
-
-    @PostConstruct
-    public void init() {
-        bookService.setPublisherService(this);
+        this.eventPublisher = eventPublisher;
     }
 
     @Override
     public Publisher create(Publisher publisher) {
-        if (publisher.getName() != null && publisherRepository.findByName(publisher.getName()) != null) {
-            throw new DuplicateEntryException("Publisher with name " + publisher.getName() + " already exists");
+        // saveAndFlush would merge an entity that already has an id instead of inserting a new row
+        if (publisher.getId() != null) {
+            throw new DuplicateEntryException("Publisher with id " + publisher.getId() + " already exists");
         }
-        return publisherRepository.save(publisher);
+        Publisher saved = saveUnique(publisher);
+        publish(ChangeType.CREATED, saved.getId(), saved);
+        return saved;
     }
 
     @Override
+    @Transactional(readOnly = true)
     public Publisher read(Long id) {
-        return publisherRepository.findById(id)
+        return publisherRepository.findWithBooksById(id)
                 .orElseThrow(() -> new RecordNotFoundException("Publisher with id " + id + " not found"));
     }
 
+    @Transactional(readOnly = true)
+    public List<BatchResultDto<PublisherDto>> readBatch(BatchRequestDto request) {
+        if (request.getIds() != null && request.getNames() == null && request.getIsbns() == null) {
+            Set<Long> ids = BatchLookup.distinctKeys(request.getIds());
+            Map<Long, Publisher> found = ids.isEmpty() ? Map.of() : BatchLookup.index(publisherRepository.findWithBooksByIdIn(ids), Publisher::getId);
+            return BatchLookup.inRequestOrder(request.getIds(), found, DtoMapper::toDto);
+        }
+        if (request.getNames() != null && request.getIds() == null && request.getIsbns() == null) {
+            Set<String> names = BatchLookup.distinctKeys(request.getNames());
+            Map<String, Publisher> found = names.isEmpty() ? Map.of()
+                    : BatchLookup.index(publisherRepository.findWithBooksByNameIn(names), publisher -> BatchLookup.foldCase(publisher.getName()));
+            return BatchLookup.inRequestOrder(request.getNames(), found, BatchLookup::foldCase, DtoMapper::toDto);
+        }
+        throw new BadArgumentException("Batch request should contain either ids or names");
+    }
+
+    @Transactional(readOnly = true)
+    public long getVersion(Long id) {
+        // A cached entity answers without touching the database
+        if (entityManager.getEntityManagerFactory().getCache().contains(Publisher.class, id)) {
+            Optional<Publisher> cached = publisherRepository.findById(id);
+            if (cached.isPresent()) return cached.get().getVersion();
+        }
+        return publisherRepository.findVersionById(id)
+                .orElseThrow(() -> new RecordNotFoundException("Publisher with id " + id + " not found"));
+    }
+
+    @Transactional(readOnly = true)
     public Publisher getPublisherByName(String name) {
         Publisher publisher = publisherRepository.findByName(name);
         if (publisher == null) {
@@ -63,6 +110,35 @@ public class PublisherService implements IService<Publisher> {
         return publisher;
     }
 
+    @Transactional(readOnly = true)
+    public PageDto<PublisherDto> list(String sort, String cursor, int limit) {
+        PageCursor.checkLimit(limit);
+        PageCursor after = cursor != null ? PageCursor.decode(cursor, sort) : null;
+        Pageable pageable = PageRequest.of(0, limit + 1);
+        List<Publisher> publishers = switch (sort) {
+            case "id" -> publisherRepository.findByIdGreaterThanOrderByIdAsc(after != null ? after.getId() : 0L, pageable);
+            case "name" -> {
+                if (after == null) yield publisherRepository.findAllByOrderByNameAscIdAsc(pageable);
+                if (after.getValue() == null) yield publisherRepository.findPageByNullNameAfter(after.getId(), pageable);
+                yield publisherRepository.findPageByNameAfter(after.getValue(), after.getId(), pageable);
+            }
+            default -> throw new BadArgumentException("Unsupported sort " + sort);
+        };
+        return PageCursor.page(publishers, limit, publisher -> new PageCursor(sort, publisher.getId(), "name".equals(sort) ? publisher.getName() : null))
+                .map(DtoMapper::toDto);
+    }
+
+    @Transactional(readOnly = true)
+    public long[] getBookIdsByPublisher(Long publisherId) {
+        if (!publisherRepository.existsById(publisherId)) {
+            throw new RecordNotFoundException("Publisher with id " + publisherId + " not found");
+        }
+        try (Stream<Number> ids = bookRepository.streamIdsByPublisherId(publisherId)) {
+            return ids.mapToLong(Number::longValue).toArray();
+        }
+    }
+
+    @Transactional(readOnly = true)
     public Set<Book> getBooksByPublisher(Long publisherId) {
         Publisher publisher = read(publisherId);
         return publisher.getBooks();
@@ -70,29 +146,51 @@ public class PublisherService implements IService<Publisher> {
 
     @Override
     public Publisher update(Long id, Publisher updatedPublisher) {
+        return update(id, updatedPublisher, null);
+    }
+
+    public Publisher update(Long id, Publisher updatedPublisher, Long expectedVersion) {
         Publisher publisher = read(id);
+        checkVersion(publisher, expectedVersion);
         if (updatedPublisher.getName() != null && !updatedPublisher.getName().isBlank()) {
             publisher.setName(updatedPublisher.getName());
         }
         if (updatedPublisher.getAddress() != null) {
             publisher.setAddress(updatedPublisher.getAddress());
         }
-        return publisherRepository.save(publisher);
+        Publisher saved = saveUnique(publisher);
+        publish(ChangeType.UPDATED, id, saved);
+        return saved;
     }
 
     @Override
     public void delete(Long id) {
-        Publisher publisher = read(id);
+        delete(id, null);
+    }
 
-        for (Book book : publisher.getBooks()) {
-//            for (Author author : book.getAuthors()) {
-//                authorService.removeBookFromAuthor(author.getId(), book.getId());
-//            }
-            book.setPublisher(null);
+    public void delete(Long id, Long expectedVersion) {
+        Publisher publisher = publisherRepository.findById(id)
+                .orElseThrow(() -> new RecordNotFoundException("Publisher with id " + id + " not found"));
+        checkVersion(publisher, expectedVersion);
+        // Pending changes go out before the bulk statements; afterwards the context is stale and is dropped
+        entityManager.flush();
+        List<Long> bookIds;
+        try (Stream<Number> ids = bookRepository.streamIdsByPublisherId(id)) {
+            bookIds = ids.map(Number::longValue).toList();
         }
-        publisherRepository.delete(publisher);
+        bookRepository.detachFromPublisher(id, Instant.now());
+        // The detached books' new versions, so the change feed gets one event per book that loses the publisher
+        List<Object[]> unlinked = bookIds.isEmpty() ? List.of() : bookRepository.findVersionsByIdIn(bookIds);
+        entityManager.clear();
+        // The version checked above may have moved since; the conditional delete rolls the cascades back then
+        if (publisherRepository.deleteRowByIdAndVersion(id, publisher.getVersion()) == 0) {
+            throw new OptimisticLockingFailureException("Publisher with id " + id + " was modified concurrently");
+        }
+        for (Object[] row : unlinked) publishLink(ChangeType.UNLINKED, (Long) row[0], (Long) row[1], id);
+        publish(ChangeType.DELETED, id, null);
     }
 
+    @RetryOnConflict
     public Publisher addBookToPublisher(Long publisherId, Long bookId) {
         Publisher publisher = read(publisherId);
         Book book = bookRepository.findById(bookId)
@@ -102,10 +200,14 @@ public class PublisherService implements IService<Publisher> {
         }
         book.setPublisher(publisher);
         publisher.getBooks().add(book);
-        bookRepository.save(book);
+        publisher.touch();
+        // Flushed here so the event can carry the book's new version
+        bookRepository.saveAndFlush(book);
+        publishLink(ChangeType.LINKED, bookId, book.getVersion(), publisherId);
         return publisher;
     }
 
+    @RetryOnConflict
     public Publisher removeBookFromPublisher(Long publisherId, Long bookId) {
         Publisher publisher = read(publisherId);
         Book book = bookRepository.findById(bookId)
@@ -115,7 +217,32 @@ public class PublisherService implements IService<Publisher> {
         }
         book.setPublisher(null);
         publisher.getBooks().remove(book);
-        bookRepository.save(book);
+        publisher.touch();
+        bookRepository.saveAndFlush(book);
+        publishLink(ChangeType.UNLINKED, bookId, book.getVersion(), publisherId);
         return publisher;
     }
+
+    private static void checkVersion(Publisher publisher, Long expectedVersion) {
+        if (expectedVersion != null && expectedVersion != publisher.getVersion()) {
+            throw new PreconditionFailedException("Publisher with id " + publisher.getId() + " has version " + publisher.getVersion());
+        }
+    }
+
+    private Publisher saveUnique(Publisher publisher) {
+        try {
+            return publisherRepository.saveAndFlush(publisher);
+        } catch (DataIntegrityViolationException e) {
+            throw new DuplicateEntryException("Publisher with name " + publisher.getName() + " already exists");
+        }
+    }
+
+    private void publish(ChangeType changeType, Long id, Publisher publisher) {
+        eventPublisher.publishEvent(new EntityChangedEvent(EntityType.PUBLISHER, changeType, id, publisher));
+    }
+
+    // Relation events are keyed by the book, as the ones BookService publishes
+    private void publishLink(ChangeType changeType, Long bookId, long bookVersion, Long publisherId) {
+        eventPublisher.publishEvent(new EntityChangedEvent(EntityType.BOOK, changeType, bookId, bookVersion, EntityType.PUBLISHER, publisherId));
+    }
 }
@@ -0,0 +1,97 @@
+package su.ezhidze.libapi.service;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionalEventListener;
+import su.ezhidze.libapi.dto.SearchHitDto;
+import su.ezhidze.libapi.entity.Author;
+import su.ezhidze.libapi.entity.Book;
+import su.ezhidze.libapi.entity.Publisher;
+import su.ezhidze.libapi.event.ChangeType;
+import su.ezhidze.libapi.event.EntityChangedEvent;
+import su.ezhidze.libapi.event.EntityType;
+import su.ezhidze.libapi.exception.BadArgumentException;
+import su.ezhidze.libapi.index.InvertedIndex;
+import su.ezhidze.libapi.repository.AuthorRepository;
+import su.ezhidze.libapi.repository.BookRepository;
+import su.ezhidze.libapi.repository.PublisherRepository;
+
+import java.util.List;
+import java.util.stream.Stream;
+
+@Service
+public class SearchService {
+
+    public static final int MAX_RESULTS = 100;
+
+    private static final EntityType[] TYPES = EntityType.values();
+
+    private final InvertedIndex index = new InvertedIndex();
+
+    private final BookRepository bookRepository;
+
+    private final AuthorRepository authorRepository;
+
+    private final PublisherRepository publisherRepository;
+
+    @Autowired
+    public SearchService(BookRepository bookRepository, AuthorRepository authorRepository,
+                         PublisherRepository publisherRepository) {
+        this.bookRepository = bookRepository;
+        this.authorRepository = authorRepository;
+        this.publisherRepository = publisherRepository;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional(readOnly = true)
+    public void rebuild() {
+        try (Stream<Object[]> rows = bookRepository.streamSearchRows()) {
+            rows.forEach(row -> index.put(key(EntityType.BOOK, (Long) row[0]), (String) row[1]));
+        }
+        try (Stream<Object[]> rows = authorRepository.streamSearchRows()) {
+            rows.forEach(row -> index.put(key(EntityType.AUTHOR, (Long) row[0]), join((String) row[1], (String) row[2])));
+        }
+        try (Stream<Object[]> rows = publisherRepository.streamSearchRows()) {
+            rows.forEach(row -> index.put(key(EntityType.PUBLISHER, (Long) row[0]), (String) row[1]));
+        }
+    }
+
+    @TransactionalEventListener
+    public void onEntityChanged(EntityChangedEvent event) {
+        long key = key(event.getEntityType(), event.getId());
+        if (event.getChangeType() == ChangeType.DELETED) {
+            index.remove(key);
+            return;
+        }
+        switch (event.getEntity()) {
+            case Book book -> index.put(key, book.getTitle());
+            case Author author -> index.put(key, join(author.getName(), author.getBiography()));
+            case Publisher publisher -> index.put(key, publisher.getName());
+            case null, default -> {
+            }
+        }
+    }
+
+    public List<SearchHitDto> search(String query, int limit) {
+        if (query == null || query.isBlank()) {
+            throw new BadArgumentException("Query cannot be blank");
+        }
+        if (limit < 1 || limit > MAX_RESULTS) {
+            throw new BadArgumentException("Limit should be between 1 and " + MAX_RESULTS);
+        }
+        return index.search(query, limit).stream()
+                .map(hit -> new SearchHitDto(TYPES[(int) (hit.getKey() & 3)], hit.getKey() >>> 2, hit.getScore()))
+                .toList();
+    }
+
+    private static long key(EntityType type, Long id) {
+        return id << 2 | type.ordinal();
+    }
+
+    private static String join(String first, String second) {
+        return second == null ? first : first == null ? second : first + " " + second;
+    }
+}
@@ -0,0 +1,373 @@
+package su.ezhidze.libapi.service;
+
+import jakarta.annotation.PreDestroy;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Isolation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+import su.ezhidze.libapi.dto.BookDto;
+import su.ezhidze.libapi.dto.CatalogStatisticsDto;
+import su.ezhidze.libapi.dto.PageCountBucketDto;
+import su.ezhidze.libapi.entity.Author;
+import su.ezhidze.libapi.entity.Book;
+import su.ezhidze.libapi.entity.CatalogStatistic;
+import su.ezhidze.libapi.event.ChangeType;
+import su.ezhidze.libapi.event.EntityChangedEvent;
+import su.ezhidze.libapi.event.EntityType;
+import su.ezhidze.libapi.index.CatalogCounters;
+import su.ezhidze.libapi.repository.BookRepository;
+import su.ezhidze.libapi.repository.CatalogStatisticRepository;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.*;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Catalog aggregates served from {@link CatalogCounters} instead of GROUP BY queries. On startup the last
+ * checkpoint is served while one set of GROUP BY queries rebuilds the counters; committed changes are then
+ * applied as deltas as they happen, and the counts that changed are written to catalog_statistics every
+ * checkpoint-interval.
+ */
+@Slf4j
+@Service
+public class StatisticsService {
+
+    // Version recorded for a book the rebuild's snapshot does not contain
+    private static final long ABSENT = -1;
+
+    private final BookRepository bookRepository;
+
+    private final CatalogStatisticRepository statisticRepository;
+
+    private final TransactionTemplate transactionTemplate;
+
+    private final Duration checkpointInterval;
+
+    private final ReentrantLock lock = new ReentrantLock();
+
+    private final ReentrantLock checkpointLock = new ReentrantLock();
+
+    private final AtomicBoolean dirty = new AtomicBoolean();
+
+    private volatile CatalogCounters counters = new CatalogCounters();
+
+    // Checkpoint time of the served counters until the first rebuild replaces them
+    private volatile Instant restoredFrom;
+
+    private volatile boolean live;
+
+    // Changes committed while a rebuild counts, applied to its result; guarded by lock
+    private List<EntityChangedEvent> pending;
+
+    // What catalog_statistics holds as of the last checkpoint; guarded by checkpointLock
+    private final Map<CatalogStatistic.Key, Long> checkpointed = new HashMap<>();
+
+    private ScheduledExecutorService scheduler;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Autowired
+    public StatisticsService(BookRepository bookRepository,
+                             CatalogStatisticRepository statisticRepository,
+                             PlatformTransactionManager transactionManager,
+                             @Value("${libapi.stats.checkpoint-interval:5m}") Duration checkpointInterval) {
+        this.bookRepository = bookRepository;
+        this.statisticRepository = statisticRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.checkpointInterval = checkpointInterval;
+    }
+
+    /**
+     * Recounts from the database. The counts and the versions of the books changed meanwhile are read in one
+     * repeatable-read snapshot on the primary, so a buffered change applies exactly when the snapshot does not
+     * contain it yet.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional(isolation = Isolation.REPEATABLE_READ)
+    public void rebuild() {
+        lock.lock();
+        try {
+            pending = new ArrayList<>();
+        } finally {
+            lock.unlock();
+        }
+        try {
+            if (!live && restoredFrom == null) restore();
+            CatalogCounters rebuilt = count();
+            Map<Long, Long> versions = new HashMap<>();
+            while (true) {
+                List<Long> unseen;
+                lock.lock();
+                try {
+                    unseen = pending.stream().filter(event -> event.getEntityType() == EntityType.BOOK)
+                            .map(EntityChangedEvent::getId).filter(id -> !versions.containsKey(id)).distinct().toList();
+                    if (unseen.isEmpty()) {
+                        replay(rebuilt, pending, versions);
+                        counters = rebuilt;
+                        live = true;
+                        restoredFrom = null;
+                        dirty.set(true);
+                        break;
+                    }
+                } finally {
+                    lock.unlock();
+                }
+                for (Long id : unseen) versions.put(id, ABSENT);
+                for (Object[] row : bookRepository.findVersionsByIdIn(unseen)) versions.put((Long) row[0], (Long) row[1]);
+            }
+        } finally {
+            lock.lock();
+            try {
+                pending = null;
+            } finally {
+                lock.unlock();
+            }
+        }
+        startCheckpoints();
+    }
+
+    private void restore() {
+        List<CatalogStatistic> rows = statisticRepository.findAll();
+        if (rows.isEmpty()) return;
+        CatalogCounters restored = new CatalogCounters();
+        Instant checkpointedAt = Instant.EPOCH;
+        checkpointLock.lock();
+        try {
+            for (CatalogStatistic row : rows) {
+                restored.restore(row.getDimension(), row.getBucket(), row.getAmount());
+                checkpointed.put(new CatalogStatistic.Key(row.getDimension(), row.getBucket()), row.getAmount());
+                if (row.getCheckpointedAt().isAfter(checkpointedAt)) checkpointedAt = row.getCheckpointedAt();
+            }
+        } finally {
+            checkpointLock.unlock();
+        }
+        counters = restored;
+        restoredFrom = checkpointedAt;
+    }
+
+    private CatalogCounters count() {
+        CatalogCounters counted = new CatalogCounters();
+        for (Object[] row : bookRepository.countByPublicationYear()) {
+            counted.restore(CatalogCounters.Dimension.YEAR, ((Number) row[0]).longValue(), ((Number) row[1]).longValue());
+        }
+        for (Object[] row : bookRepository.countByPublisher()) {
+            counted.restore(CatalogCounters.Dimension.PUBLISHER, ((Number) row[0]).longValue(), ((Number) row[1]).longValue());
+        }
+        for (Object[] row : bookRepository.countByAuthor()) {
+            counted.restore(CatalogCounters.Dimension.AUTHOR, ((Number) row[0]).longValue(), ((Number) row[1]).longValue());
+        }
+        long[] buckets = new long[CatalogCounters.PAGE_BUCKETS];
+        long books = 0;
+        long pages = 0;
+        for (Object[] row : bookRepository.countByPageCount()) {
+            int pageCount = ((Number) row[0]).intValue();
+            long amount = ((Number) row[1]).longValue();
+            buckets[CatalogCounters.bucket(pageCount)] += amount;
+            books += amount;
+            pages += amount * pageCount;
+        }
+        for (int i = 0; i < buckets.length; i++) counted.restore(CatalogCounters.Dimension.PAGES, i, buckets[i]);
+        counted.restore(CatalogCounters.Dimension.TOTAL, 0, books);
+        counted.restore(CatalogCounters.Dimension.TOTAL, 1, pages);
+        return counted;
+    }
+
+    /**
+     * Applies the buffered changes the snapshot missed. Versions only grow, so a change to a book the snapshot
+     * holds is missing when its version is newer, or when it deletes the book. A book the snapshot lacks was
+     * either created after it, and then all its changes are missing, or deleted before it, and then none are.
+     */
+    private static void replay(CatalogCounters counters, List<EntityChangedEvent> events, Map<Long, Long> versions) {
+        Set<Long> createdLater = new HashSet<>();
+        for (EntityChangedEvent event : events) {
+            if (event.getEntityType() == EntityType.BOOK && event.getChangeType() == ChangeType.CREATED
+                    && versions.get(event.getId()) == ABSENT) createdLater.add(event.getId());
+        }
+        for (EntityChangedEvent event : events) {
+            if (event.getEntityType() != EntityType.BOOK) {
+                apply(counters, event);
+                continue;
+            }
+            long known = versions.get(event.getId());
+            boolean missing = known == ABSENT ? createdLater.contains(event.getId())
+                    : event.getChangeType() == ChangeType.DELETED
+                    || event.getChangeType() != ChangeType.CREATED && version(event) > known;
+            if (missing) apply(counters, event);
+        }
+    }
+
+    @TransactionalEventListener
+    public void onEntityChanged(EntityChangedEvent event) {
+        lock.lock();
+        try {
+            if (pending != null) {
+                pending.add(event);
+            } else if (live) {
+                apply(counters, event);
+                dirty.set(true);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private static void apply(CatalogCounters counters, EntityChangedEvent event) {
+        switch (event.getEntityType()) {
+            case BOOK -> {
+                switch (event.getChangeType()) {
+                    case CREATED -> {
+                        if (event.getEntity() instanceof Book book) counters.add(facts(book));
+                    }
+                    case UPDATED -> {
+                        // Updates never touch the publisher or the authors, so only year and pages move
+                        if (event.getEntity() instanceof Book book && event.getPrevious() instanceof BookDto previous) {
+                            counters.change(new CatalogCounters.BookFacts(previous.getPublicationYear(), previous.getPageCount(), null),
+                                    new CatalogCounters.BookFacts(book.getPublicationYear(), book.getPageCount(), null));
+                        }
+                    }
+                    case DELETED -> {
+                        if (event.getPrevious() instanceof BookDto previous) counters.remove(facts(previous));
+                    }
+                    case LINKED -> {
+                        if (event.getRelatedType() == EntityType.AUTHOR) counters.link(event.getRelatedId());
+                        else counters.attach(event.getRelatedId());
+                    }
+                    case UNLINKED -> {
+                        if (event.getRelatedType() == EntityType.AUTHOR) counters.unlink(event.getRelatedId());
+                        else counters.detach(event.getRelatedId());
+                    }
+                }
+            }
+            case AUTHOR -> {
+                if (event.getChangeType() == ChangeType.DELETED) counters.removeAuthor(event.getId());
+            }
+            case PUBLISHER -> {
+                if (event.getChangeType() == ChangeType.DELETED) counters.removePublisher(event.getId());
+            }
+        }
+    }
+
+    private static long version(EntityChangedEvent event) {
+        if (event.getVersion() != null) return event.getVersion();
+        return event.getEntity() instanceof Book book ? book.getVersion() : Long.MAX_VALUE;
+    }
+
+    private static CatalogCounters.BookFacts facts(Book book) {
+        long[] authorIds = book.getAuthors().stream().mapToLong(Author::getId).toArray();
+        Long publisherId = book.getPublisher() != null ? book.getPublisher().getId() : null;
+        return new CatalogCounters.BookFacts(book.getPublicationYear(), book.getPageCount(), publisherId, authorIds);
+    }
+
+    private static CatalogCounters.BookFacts facts(BookDto book) {
+        long[] authorIds = book.getAuthorIds() != null ? book.getAuthorIds().stream().mapToLong(Long::longValue).toArray() : new long[0];
+        return new CatalogCounters.BookFacts(book.getPublicationYear(), book.getPageCount(), book.getPublisherId(), authorIds);
+    }
+
+    /**
+     * Writes the counts that changed since the last checkpoint and drops the ones that went away. Counters keep
+     * changing while they are copied, so a checkpoint may be off by the changes applied meanwhile; the next one
+     * picks them up.
+     */
+    public void checkpoint() {
+        if (!live || !dirty.getAndSet(false)) return;
+        Map<CatalogStatistic.Key, Long> current = new HashMap<>();
+        counters.forEachCount((dimension, bucket, amount) -> current.put(new CatalogStatistic.Key(dimension, bucket), amount));
+        Instant now = Instant.now();
+        checkpointLock.lock();
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                current.forEach((key, amount) -> {
+                    Long written = checkpointed.get(key);
+                    if (amount.equals(written)) return;
+                    if (written == null || statisticRepository.updateAmount(key.getDimension(), key.getBucket(), amount, now) == 0) {
+                        entityManager.persist(new CatalogStatistic(key.getDimension(), key.getBucket(), amount, now));
+                    }
+                });
+                for (CatalogStatistic.Key key : checkpointed.keySet()) {
+                    if (!current.containsKey(key)) statisticRepository.deleteByKey(key.getDimension(), key.getBucket());
+                }
+            });
+            checkpointed.clear();
+            checkpointed.putAll(current);
+        } catch (RuntimeException e) {
+            dirty.set(true);
+            log.warn("Statistics checkpoint failed: {}", e.getMessage());
+        } finally {
+            checkpointLock.unlock();
+        }
+    }
+
+    private void startCheckpoints() {
+        if (scheduler != null || checkpointInterval.isZero()) return;
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "statistics-checkpoint");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long interval = checkpointInterval.toMillis();
+        scheduler.scheduleWithFixedDelay(this::checkpoint, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void close() {
+        if (scheduler != null) scheduler.shutdownNow();
+        checkpoint();
+    }
+
+    public CatalogStatisticsDto summary() {
+        CatalogCounters current = counters;
+        long books = current.books();
+        return new CatalogStatisticsDto(books, current.pages(), books == 0 ? 0 : (double) current.pages() / books,
+                live, restoredFrom);
+    }
+
+    public long booksInYear(int year) {
+        return counters.booksInYear(year);
+    }
+
+    public long booksOfPublisher(long publisherId) {
+        return counters.booksOfPublisher(publisherId);
+    }
+
+    public long booksOfAuthor(long authorId) {
+        return counters.booksOfAuthor(authorId);
+    }
+
+    public SortedMap<Long, Long> booksByYear() {
+        return counters.booksByYear();
+    }
+
+    public SortedMap<Long, Long> booksByPublisher() {
+        return counters.booksByPublisher();
+    }
+
+    public SortedMap<Long, Long> booksByAuthor() {
+        return counters.booksByAuthor();
+    }
+
+    public List<PageCountBucketDto> pageCounts() {
+        long[] buckets = counters.pageCountBuckets();
+        List<PageCountBucketDto> dtos = new ArrayList<>(buckets.length);
+        for (int i = 0; i < buckets.length; i++) {
+            int from = i * CatalogCounters.PAGE_BUCKET_WIDTH;
+            Integer to = i == buckets.length - 1 ? null : from + CatalogCounters.PAGE_BUCKET_WIDTH;
+            dtos.add(new PageCountBucketDto(from, to, buckets[i]));
+        }
+        return dtos;
+    }
+}
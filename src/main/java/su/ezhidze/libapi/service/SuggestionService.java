@@ -0,0 +1,88 @@
+package su.ezhidze.libapi.service;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionalEventListener;
+import su.ezhidze.libapi.dto.SuggestionDto;
+import su.ezhidze.libapi.entity.Author;
+import su.ezhidze.libapi.entity.Publisher;
+import su.ezhidze.libapi.event.ChangeType;
+import su.ezhidze.libapi.event.EntityChangedEvent;
+import su.ezhidze.libapi.exception.BadArgumentException;
+import su.ezhidze.libapi.index.PrefixIndex;
+import su.ezhidze.libapi.repository.AuthorRepository;
+import su.ezhidze.libapi.repository.PublisherRepository;
+
+import java.util.List;
+import java.util.stream.Stream;
+
+@Service
+public class SuggestionService {
+
+    public static final int MAX_SUGGESTIONS = 50;
+
+    private final PrefixIndex authorNames = new PrefixIndex();
+
+    private final PrefixIndex publisherNames = new PrefixIndex();
+
+    private final AuthorRepository authorRepository;
+
+    private final PublisherRepository publisherRepository;
+
+    @Autowired
+    public SuggestionService(AuthorRepository authorRepository, PublisherRepository publisherRepository) {
+        this.authorRepository = authorRepository;
+        this.publisherRepository = publisherRepository;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional(readOnly = true)
+    public void rebuild() {
+        try (Stream<Object[]> rows = authorRepository.streamSearchRows()) {
+            authorNames.rebuild(rows.map(row -> new PrefixIndex.Entry((Long) row[0], (String) row[1])).toList());
+        }
+        try (Stream<Object[]> rows = publisherRepository.streamSearchRows()) {
+            publisherNames.rebuild(rows.map(row -> new PrefixIndex.Entry((Long) row[0], (String) row[1])).toList());
+        }
+    }
+
+    @TransactionalEventListener
+    public void onEntityChanged(EntityChangedEvent event) {
+        PrefixIndex index = switch (event.getEntityType()) {
+            case AUTHOR -> authorNames;
+            case PUBLISHER -> publisherNames;
+            default -> null;
+        };
+        if (index == null) return;
+        if (event.getChangeType() == ChangeType.DELETED) {
+            index.remove(event.getId());
+        } else if (event.getEntity() instanceof Author author) {
+            index.put(author.getId(), author.getName());
+        } else if (event.getEntity() instanceof Publisher publisher) {
+            index.put(publisher.getId(), publisher.getName());
+        }
+    }
+
+    public List<SuggestionDto> suggestAuthors(String prefix, int limit) {
+        return suggest(authorNames, prefix, limit);
+    }
+
+    public List<SuggestionDto> suggestPublishers(String prefix, int limit) {
+        return suggest(publisherNames, prefix, limit);
+    }
+
+    private List<SuggestionDto> suggest(PrefixIndex index, String prefix, int limit) {
+        if (prefix == null || prefix.isEmpty()) {
+            throw new BadArgumentException("Prefix cannot be empty");
+        }
+        if (limit < 1 || limit > MAX_SUGGESTIONS) {
+            throw new BadArgumentException("Limit should be between 1 and " + MAX_SUGGESTIONS);
+        }
+        return index.suggest(prefix, limit).stream()
+                .map(entry -> new SuggestionDto(entry.getId(), entry.getName()))
+                .toList();
+    }
+}
@@ -0,0 +1,161 @@
+package su.ezhidze.libapi.service;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import su.ezhidze.libapi.dto.*;
+import su.ezhidze.libapi.entity.Author;
+import su.ezhidze.libapi.entity.Book;
+import su.ezhidze.libapi.entity.Publisher;
+import su.ezhidze.libapi.entity.Tombstone;
+import su.ezhidze.libapi.event.ChangeType;
+import su.ezhidze.libapi.event.EntityChangedEvent;
+import su.ezhidze.libapi.event.EntityType;
+import su.ezhidze.libapi.exception.BadArgumentException;
+import su.ezhidze.libapi.repository.AuthorRepository;
+import su.ezhidze.libapi.repository.BookRepository;
+import su.ezhidze.libapi.repository.PublisherRepository;
+import su.ezhidze.libapi.repository.TombstoneRepository;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.format.DateTimeParseException;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Incremental sync: the rows whose lastModified is after a watermark, merged with the tombstones of rows
+ * deleted since, in (lastModified, id) order.
+ * <p>
+ * lastModified is stamped before commit, so a row may become visible after later stamps were already read.
+ * Pages therefore stop at now minus {@code libapi.changes.settle-time}, and that bound is the watermark the
+ * next sync starts from.
+ */
+@Service
+@Transactional(readOnly = true)
+public class SyncService {
+
+    private static final String SORT = "lastModified";
+
+    private final BookRepository bookRepository;
+
+    private final AuthorRepository authorRepository;
+
+    private final PublisherRepository publisherRepository;
+
+    private final TombstoneRepository tombstoneRepository;
+
+    private final Duration settleTime;
+
+    @Autowired
+    public SyncService(BookRepository bookRepository,
+                       AuthorRepository authorRepository,
+                       PublisherRepository publisherRepository,
+                       TombstoneRepository tombstoneRepository,
+                       @Value("${libapi.changes.settle-time:5s}") Duration settleTime) {
+        this.bookRepository = bookRepository;
+        this.authorRepository = authorRepository;
+        this.publisherRepository = publisherRepository;
+        this.tombstoneRepository = tombstoneRepository;
+        this.settleTime = settleTime;
+    }
+
+    // Synchronous, so the tombstone commits or rolls back with the delete
+    @EventListener
+    @Transactional
+    public void onEntityChanged(EntityChangedEvent event) {
+        if (event.getChangeType() == ChangeType.DELETED) {
+            tombstoneRepository.save(new Tombstone(null, event.getEntityType(), event.getId(), Instant.now().truncatedTo(ChronoUnit.MICROS)));
+        }
+    }
+
+    public SyncPageDto<BookDto> books(String since, String cursor, int limit) {
+        return sync(EntityType.BOOK, since, cursor, limit, (after, until) -> {
+            List<Book> books = bookRepository.findModifiedAfter(after.since(), after.id(), until, PageRequest.of(0, limit + 1));
+            // Initializes the page's author sets in place with one joined query
+            if (!books.isEmpty()) bookRepository.findWithAuthorsByIdIn(books.stream().map(Book::getId).toList());
+            return books;
+        }, Book::getId, Book::getLastModified, DtoMapper::toDto);
+    }
+
+    public SyncPageDto<AuthorDto> authors(String since, String cursor, int limit) {
+        return sync(EntityType.AUTHOR, since, cursor, limit, (after, until) -> {
+            List<Author> authors = authorRepository.findModifiedAfter(after.since(), after.id(), until, PageRequest.of(0, limit + 1));
+            if (!authors.isEmpty()) authorRepository.findWithBooksByIdIn(authors.stream().map(Author::getId).toList());
+            return authors;
+        }, Author::getId, Author::getLastModified, DtoMapper::toDto);
+    }
+
+    public SyncPageDto<PublisherDto> publishers(String since, String cursor, int limit) {
+        return sync(EntityType.PUBLISHER, since, cursor, limit, (after, until) -> {
+            List<Publisher> publishers = publisherRepository.findModifiedAfter(after.since(), after.id(), until, PageRequest.of(0, limit + 1));
+            if (!publishers.isEmpty()) publisherRepository.findWithBooksByIdIn(publishers.stream().map(Publisher::getId).toList());
+            return publishers;
+        }, Publisher::getId, Publisher::getLastModified, DtoMapper::toDto);
+    }
+
+    private record Position(Instant since, Long id) {
+    }
+
+    private interface ModifiedRows<E> {
+        List<E> find(Position after, Instant until);
+    }
+
+    private <E, D> SyncPageDto<D> sync(EntityType type, String since, String cursor, int limit, ModifiedRows<E> rows,
+                                       Function<E, Long> idOf, Function<E, Instant> lastModifiedOf, Function<E, D> toDto) {
+        PageCursor.checkLimit(limit);
+        Position after = position(since, cursor);
+        Instant until = Instant.now().minus(settleTime);
+        if (!until.isAfter(after.since())) return new SyncPageDto<>(List.of(), null, after.since());
+
+        List<E> modified = rows.find(after, until);
+        Pageable pageable = PageRequest.of(0, limit + 1);
+        List<Tombstone> tombstones = tombstoneRepository.findDeletedAfter(type, after.since(), after.id(), until, pageable);
+
+        // Both lists are in (timestamp, id) order; ids never repeat across them since deleted ids are not reused
+        List<SyncEntryDto<D>> entries = new ArrayList<>(limit + 1);
+        int m = 0, t = 0;
+        while (entries.size() <= limit && (m < modified.size() || t < tombstones.size())) {
+            boolean takeRow = t == tombstones.size() || (m < modified.size()
+                    && compare(lastModifiedOf.apply(modified.get(m)), idOf.apply(modified.get(m)),
+                    tombstones.get(t).getDeletedAt(), tombstones.get(t).getEntityId()) < 0);
+            if (takeRow) {
+                E row = modified.get(m++);
+                entries.add(new SyncEntryDto<>(idOf.apply(row), lastModifiedOf.apply(row), false, toDto.apply(row)));
+            } else {
+                Tombstone tombstone = tombstones.get(t++);
+                entries.add(new SyncEntryDto<>(tombstone.getEntityId(), tombstone.getDeletedAt(), true, null));
+            }
+        }
+        PageDto<SyncEntryDto<D>> page = PageCursor.page(entries, limit,
+                entry -> new PageCursor(SORT, entry.getId(), entry.getLastModified().toString()));
+        return new SyncPageDto<>(page.getItems(), page.getNextCursor(), until);
+    }
+
+    private static int compare(Instant leftTime, Long leftId, Instant rightTime, Long rightId) {
+        int byTime = leftTime.compareTo(rightTime);
+        return byTime != 0 ? byTime : leftId.compareTo(rightId);
+    }
+
+    private static Position position(String since, String cursor) {
+        try {
+            if (cursor != null) {
+                PageCursor after = PageCursor.decode(cursor, SORT);
+                if (after.getValue() == null) {
+                    throw new BadArgumentException("Invalid cursor " + cursor);
+                }
+                return new Position(Instant.parse(after.getValue()), after.getId());
+            }
+            // Without a watermark every row is returned, as a full sync would
+            return new Position(since != null ? Instant.parse(since) : Instant.EPOCH, Long.MAX_VALUE);
+        } catch (DateTimeParseException e) {
+            throw new BadArgumentException("Invalid timestamp " + e.getParsedString() + ", expected ISO-8601 like 2024-01-01T00:00:00Z");
+        }
+    }
+}
@@ -0,0 +1,46 @@
+package su.ezhidze.libapi.util;
+
+import su.ezhidze.libapi.exception.BadArgumentException;
+
+/**
+ * Strong ETags derived from entity {@code @Version} columns. The resource URL already identifies the
+ * entity, so the tag is just the quoted version.
+ */
+public final class ETags {
+
+    private ETags() {
+    }
+
+    public static String of(long version) {
+        return "\"" + version + "\"";
+    }
+
+    // If-None-Match uses weak comparison and may list several tags
+    public static boolean noneMatchHits(String ifNoneMatch, long version) {
+        String etag = of(version);
+        for (String candidate : ifNoneMatch.split(",")) {
+            String tag = candidate.trim();
+            if (tag.equals("*")) return true;
+            if (tag.startsWith("W/")) tag = tag.substring(2);
+            if (tag.equals(etag)) return true;
+        }
+        return false;
+    }
+
+    /**
+     * Version required by an If-Match header, or {@code null} when there is no header or it is
+     * {@code *}. Only a single strong tag is accepted.
+     */
+    public static Long ifMatchVersion(String ifMatch) {
+        if (ifMatch == null || ifMatch.trim().equals("*")) return null;
+        String tag = ifMatch.trim();
+        if (tag.length() < 3 || tag.charAt(0) != '"' || tag.charAt(tag.length() - 1) != '"') {
+            throw new BadArgumentException("If-Match should be a single strong ETag");
+        }
+        try {
+            return Long.parseLong(tag.substring(1, tag.length() - 1));
+        } catch (NumberFormatException e) {
+            throw new BadArgumentException("If-Match should be a single strong ETag");
+        }
+    }
+}
@@ -0,0 +1,57 @@
+package su.ezhidze.libapi.util;
+
+public final class Isbn {
+
+    private Isbn() {
+    }
+
+    /**
+     * Returns the ISBN-13 value of a valid ISBN-10 or ISBN-13 (hyphens and spaces ignored), or
+     * {@code null} when the string is not a checksum-valid ISBN.
+     */
+    public static Long toIsbn13(String isbn) {
+        if (isbn == null) return null;
+        StringBuilder digits = new StringBuilder(13);
+        for (int i = 0; i < isbn.length(); i++) {
+            char c = isbn.charAt(i);
+            if (c != '-' && c != ' ') digits.append(c);
+        }
+        if (digits.length() == 13) return isValidIsbn13(digits) ? Long.parseLong(digits.toString()) : null;
+        if (digits.length() == 10) return isValidIsbn10(digits) ? convertIsbn10(digits) : null;
+        return null;
+    }
+
+    private static boolean isValidIsbn13(CharSequence digits) {
+        int sum = 0;
+        for (int i = 0; i < 13; i++) {
+            char c = digits.charAt(i);
+            if (c < '0' || c > '9') return false;
+            sum += (c - '0') * (i % 2 == 0 ? 1 : 3);
+        }
+        return sum % 10 == 0;
+    }
+
+    private static boolean isValidIsbn10(CharSequence digits) {
+        int sum = 0;
+        for (int i = 0; i < 10; i++) {
+            char c = digits.charAt(i);
+            int value;
+            if (c >= '0' && c <= '9') value = c - '0';
+            else if (i == 9 && (c == 'X' || c == 'x')) value = 10;
+            else return false;
+            sum += (10 - i) * value;
+        }
+        return sum % 11 == 0;
+    }
+
+    private static long convertIsbn10(CharSequence digits) {
+        long value = 978;
+        int sum = 9 + 7 * 3 + 8;
+        for (int i = 0; i < 9; i++) {
+            int digit = digits.charAt(i) - '0';
+            value = value * 10 + digit;
+            sum += digit * ((i + 3) % 2 == 0 ? 1 : 3);
+        }
+        return value * 10 + (10 - sum % 10) % 10;
+    }
+}
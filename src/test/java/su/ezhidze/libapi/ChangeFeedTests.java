@@ -0,0 +1,158 @@
+package su.ezhidze.libapi;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.transaction.annotation.Transactional;
+import su.ezhidze.libapi.dto.ChangeEventDto;
+import su.ezhidze.libapi.entity.Author;
+import su.ezhidze.libapi.entity.Book;
+import su.ezhidze.libapi.entity.Publisher;
+import su.ezhidze.libapi.event.ChangeType;
+import su.ezhidze.libapi.event.EntityType;
+import su.ezhidze.libapi.service.AuthorService;
+import su.ezhidze.libapi.service.BookService;
+import su.ezhidze.libapi.service.ChangeFeedService;
+import su.ezhidze.libapi.service.PublisherService;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+@TestPropertySource(locations = "classpath:application-test.properties", properties = "libapi.changes.settle-time=0s")
+@Transactional
+class ChangeFeedTests {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private BookService bookService;
+
+    @Autowired
+    private AuthorService authorService;
+
+    @Autowired
+    private PublisherService publisherService;
+
+    @Autowired
+    private ChangeFeedService changeFeedService;
+
+    @Test
+    void mutationsAreRecordedInOrder() {
+        long head = changeFeedService.head();
+        Book book = new Book();
+        book.setTitle("Outbox book");
+        Long bookId = bookService.create(book).getId();
+        Author author = new Author();
+        author.setName("Outbox author");
+        Long authorId = authorService.create(author).getId();
+        bookService.addAuthorToBook(bookId, authorId);
+        bookService.removeAuthorFromBook(bookId, authorId);
+        bookService.delete(bookId);
+
+        List<ChangeEventDto> events = changeFeedService.read(head, 100);
+        assertEquals(5, events.size());
+        assertEvent(events.get(0), EntityType.BOOK, ChangeType.CREATED, bookId, null);
+        assertEvent(events.get(1), EntityType.AUTHOR, ChangeType.CREATED, authorId, null);
+        assertEvent(events.get(2), EntityType.BOOK, ChangeType.LINKED, bookId, authorId);
+        assertEvent(events.get(3), EntityType.BOOK, ChangeType.UNLINKED, bookId, authorId);
+        assertEvent(events.get(4), EntityType.BOOK, ChangeType.DELETED, bookId, null);
+        for (int i = 1; i < events.size(); i++) assertTrue(events.get(i).getSeq() > events.get(i - 1).getSeq());
+
+        assertEquals(2, changeFeedService.read(events.get(2).getSeq(), 2).size());
+    }
+
+    @Test
+    void cascadingDeletesRecordTheRowsTheyUnlink() {
+        Book book = new Book();
+        book.setTitle("Cascade book");
+        Long bookId = bookService.create(book).getId();
+        Long firstAuthorId = createAuthor("Cascade author");
+        Long secondAuthorId = createAuthor("Surviving author");
+        Publisher publisher = new Publisher();
+        publisher.setName("Cascade publisher");
+        Long publisherId = publisherService.create(publisher).getId();
+        bookService.addAuthorToBook(bookId, firstAuthorId);
+        bookService.addAuthorToBook(bookId, secondAuthorId);
+        publisherService.addBookToPublisher(publisherId, bookId);
+
+        long head = changeFeedService.head();
+        authorService.delete(firstAuthorId);
+        List<ChangeEventDto> events = changeFeedService.read(head, 100);
+        assertEquals(2, events.size());
+        assertEvent(events.get(0), EntityType.BOOK, ChangeType.UNLINKED, bookId, firstAuthorId);
+        assertEvent(events.get(1), EntityType.AUTHOR, ChangeType.DELETED, firstAuthorId, null);
+
+        head = changeFeedService.head();
+        bookService.delete(bookId);
+        events = changeFeedService.read(head, 100);
+        assertEquals(3, events.size());
+        assertEvent(events.get(0), EntityType.AUTHOR, ChangeType.UNLINKED, secondAuthorId, bookId);
+        assertEvent(events.get(1), EntityType.PUBLISHER, ChangeType.UNLINKED, publisherId, bookId);
+        assertEvent(events.get(2), EntityType.BOOK, ChangeType.DELETED, bookId, null);
+    }
+
+    @Test
+    void publisherDeleteRecordsDetachedBooks() {
+        Book book = new Book();
+        book.setTitle("Detached book");
+        Long bookId = bookService.create(book).getId();
+        Publisher publisher = new Publisher();
+        publisher.setName("Deleted publisher");
+        Long publisherId = publisherService.create(publisher).getId();
+        publisherService.addBookToPublisher(publisherId, bookId);
+
+        long head = changeFeedService.head();
+        publisherService.delete(publisherId);
+        List<ChangeEventDto> events = changeFeedService.read(head, 100);
+        assertEquals(2, events.size());
+        assertEvent(events.get(0), EntityType.BOOK, ChangeType.UNLINKED, bookId, publisherId);
+        assertEvent(events.get(1), EntityType.PUBLISHER, ChangeType.DELETED, publisherId, null);
+    }
+
+    @Test
+    void catchUpReadResumesAfterOffset() throws Exception {
+        long head = changeFeedService.head();
+        Author author = new Author();
+        author.setName("Feed author");
+        Long authorId = authorService.create(author).getId();
+        author.setBiography("Updated");
+        authorService.update(authorId, author);
+
+        mockMvc.perform(get("/api/changes?after=" + head))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(2))
+                .andExpect(jsonPath("$[0].changeType").value("CREATED"))
+                .andExpect(jsonPath("$[1].changeType").value("UPDATED"))
+                .andExpect(jsonPath("$[1].entityId").value(authorId));
+        long created = changeFeedService.read(head, 1).get(0).getSeq();
+        mockMvc.perform(get("/api/changes?after=" + created))
+                .andExpect(jsonPath("$.length()").value(1));
+        mockMvc.perform(get("/api/changes?limit=0"))
+                .andExpect(status().isBadRequest());
+    }
+
+    private Long createAuthor(String name) {
+        Author author = new Author();
+        author.setName(name);
+        return authorService.create(author).getId();
+    }
+
+    private static void assertEvent(ChangeEventDto event, EntityType entityType, ChangeType changeType, Long id, Long relatedId) {
+        assertEquals(entityType, event.getEntityType());
+        assertEquals(changeType, event.getChangeType());
+        assertEquals(id, event.getEntityId());
+        assertEquals(relatedId, event.getRelatedId());
+    }
+}
@@ -0,0 +1,111 @@
+package su.ezhidze.libapi;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+import su.ezhidze.libapi.entity.Author;
+import su.ezhidze.libapi.entity.Book;
+import su.ezhidze.libapi.exception.DuplicateEntryException;
+import su.ezhidze.libapi.repository.AuthorRepository;
+import su.ezhidze.libapi.repository.BookRepository;
+import su.ezhidze.libapi.service.AuthorService;
+import su.ezhidze.libapi.service.BookService;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntConsumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Not @Transactional: every create has to commit in its own transaction for the writers to race.
+@SpringBootTest
+@ActiveProfiles("test")
+@TestPropertySource(locations = "classpath:application-test.properties")
+class ConcurrentCreateTests {
+
+    private static final int WRITERS = 64;
+
+    private static final int CREATES_PER_WRITER = 20;
+
+    private static final int DISTINCT_KEYS = 100;
+
+    @Autowired
+    private BookService bookService;
+
+    @Autowired
+    private AuthorService authorService;
+
+    @Autowired
+    private BookRepository bookRepository;
+
+    @Autowired
+    private AuthorRepository authorRepository;
+
+    private final List<Long> bookIds = new CopyOnWriteArrayList<>();
+
+    private final List<Long> authorIds = new CopyOnWriteArrayList<>();
+
+    @AfterEach
+    void tearDown() {
+        bookRepository.deleteAllById(bookIds);
+        authorRepository.deleteAllById(authorIds);
+    }
+
+    @Test
+    void concurrentBookCreatesKeepIsbnUnique() throws Exception {
+        AtomicInteger duplicates = new AtomicInteger();
+        runWriters(i -> {
+            Book book = new Book();
+            book.setIsbn("concurrent-isbn-" + i % DISTINCT_KEYS);
+            try {
+                bookIds.add(bookService.create(book).getId());
+            } catch (DuplicateEntryException e) {
+                duplicates.incrementAndGet();
+            }
+        });
+        assertEquals(DISTINCT_KEYS, bookIds.size());
+        assertEquals(WRITERS * CREATES_PER_WRITER - DISTINCT_KEYS, duplicates.get());
+        for (int key = 0; key < DISTINCT_KEYS; key++) assertNotNull(bookService.getBookByIsbn("concurrent-isbn-" + key));
+    }
+
+    @Test
+    void concurrentAuthorCreatesKeepNameUnique() throws Exception {
+        AtomicInteger duplicates = new AtomicInteger();
+        runWriters(i -> {
+            Author author = new Author();
+            author.setName("Concurrent author " + i % DISTINCT_KEYS);
+            try {
+                authorIds.add(authorService.create(author).getId());
+            } catch (DuplicateEntryException e) {
+                duplicates.incrementAndGet();
+            }
+        });
+        assertEquals(DISTINCT_KEYS, authorIds.size());
+        assertEquals(WRITERS * CREATES_PER_WRITER - DISTINCT_KEYS, duplicates.get());
+    }
+
+    private void runWriters(IntConsumer create) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(WRITERS);
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicInteger sequence = new AtomicInteger();
+        List<Future<?>> futures = new ArrayList<>();
+        try {
+            for (int writer = 0; writer < WRITERS; writer++) {
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    for (int n = 0; n < CREATES_PER_WRITER; n++) create.accept(sequence.getAndIncrement());
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> future : futures) future.get(2, TimeUnit.MINUTES);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
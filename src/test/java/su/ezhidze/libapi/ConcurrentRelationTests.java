@@ -0,0 +1,98 @@
+package su.ezhidze.libapi;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.dao.ConcurrencyFailureException;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+import su.ezhidze.libapi.entity.Author;
+import su.ezhidze.libapi.entity.Book;
+import su.ezhidze.libapi.service.AuthorService;
+import su.ezhidze.libapi.service.BookService;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Not @Transactional: each relation change has to commit on its own for the writers to conflict.
+@SpringBootTest
+@ActiveProfiles("test")
+@TestPropertySource(locations = "classpath:application-test.properties")
+class ConcurrentRelationTests {
+
+    private static final int WRITERS = 16;
+
+    @Autowired
+    private BookService bookService;
+
+    @Autowired
+    private AuthorService authorService;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private Long bookId;
+
+    private final List<Long> authorIds = new ArrayList<>();
+
+    @AfterEach
+    void tearDown() {
+        if (bookId != null) bookService.delete(bookId);
+        for (Long authorId : authorIds) authorService.delete(authorId);
+    }
+
+    @Test
+    void concurrentAuthorAddsToOneBookLoseNoUpdates() throws Exception {
+        bookId = bookService.create(new Book()).getId();
+        for (int i = 0; i < WRITERS; i++) {
+            Author author = new Author();
+            author.setName("Concurrent relation author " + i);
+            authorIds.add(authorService.create(author).getId());
+        }
+
+        double retriesBefore = retryCount("retries");
+        double exhaustedBefore = retryCount("exhausted");
+        Set<Long> added = ConcurrentHashMap.newKeySet();
+        AtomicInteger exhausted = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(WRITERS);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (Long authorId : authorIds) {
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    try {
+                        bookService.addAuthorToBook(bookId, authorId);
+                        added.add(authorId);
+                    } catch (ConcurrencyFailureException e) {
+                        exhausted.incrementAndGet();
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> future : futures) future.get(2, TimeUnit.MINUTES);
+        } finally {
+            executor.shutdownNow();
+        }
+
+        long[] stored = bookService.getAuthorIds(bookId);
+        Set<Long> storedIds = new HashSet<>();
+        for (long id : stored) storedIds.add(id);
+        assertEquals(added, storedIds);
+        assertEquals(WRITERS, added.size() + exhausted.get());
+        assertFalse(added.isEmpty());
+        // Each writer that gave up went through every retry first
+        assertEquals(exhausted.get(), retryCount("exhausted") - exhaustedBefore);
+        assertTrue(retryCount("retries") - retriesBefore >= exhausted.get() * 4.0);
+    }
+
+    private double retryCount(String outcome) {
+        return meterRegistry.counter("libapi.retry." + outcome, "service", "BookService", "method", "addAuthorToBook").count();
+    }
+}
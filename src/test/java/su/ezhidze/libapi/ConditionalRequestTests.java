@@ -0,0 +1,111 @@
+package su.ezhidze.libapi;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import su.ezhidze.libapi.dto.BookDto;
+import su.ezhidze.libapi.entity.Author;
+import su.ezhidze.libapi.entity.Book;
+import su.ezhidze.libapi.exception.PreconditionFailedException;
+import su.ezhidze.libapi.repository.BookRepository;
+import su.ezhidze.libapi.service.AuthorService;
+import su.ezhidze.libapi.service.BookService;
+
+import java.time.Instant;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+@TestPropertySource(locations = "classpath:application-test.properties")
+@Transactional
+class ConditionalRequestTests {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private BookService bookService;
+
+    @Autowired
+    private AuthorService authorService;
+
+    @Autowired
+    private BookRepository bookRepository;
+
+    @Test
+    void getReturnsNotModifiedForCurrentETag() throws Exception {
+        Book book = bookService.create(new Book());
+        String etag = mockMvc.perform(get("/api/books/" + book.getId()))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        assertNotNull(etag);
+        mockMvc.perform(get("/api/books/" + book.getId()).header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string(HttpHeaders.ETAG, etag));
+        mockMvc.perform(get("/api/books/" + book.getId()).header(HttpHeaders.IF_NONE_MATCH, "\"" + (book.getVersion() + 1) + "\""))
+                .andExpect(status().isOk());
+    }
+
+    @Test
+    void putWithStaleIfMatchFails() throws Exception {
+        Book book = bookService.create(new Book());
+        String body = objectMapper.writeValueAsString(new BookDto(null, "Title", 2024, "etag-isbn", 100, null, null));
+        String original = "\"" + book.getVersion() + "\"";
+        String etag = mockMvc.perform(put("/api/books/" + book.getId()).header(HttpHeaders.IF_MATCH, original)
+                        .contentType(MediaType.APPLICATION_JSON).content(body))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        assertNotEquals(original, etag);
+        mockMvc.perform(put("/api/books/" + book.getId()).header(HttpHeaders.IF_MATCH, original)
+                        .contentType(MediaType.APPLICATION_JSON).content(body))
+                .andExpect(status().isPreconditionFailed());
+    }
+
+    // The bulk update moves the row's version under the managed book, as a concurrent update after the check would
+    @Test
+    void deleteFailsWhenVersionMovesAfterTheCheck() {
+        Book book = bookService.create(new Book());
+        long checked = book.getVersion();
+        bookRepository.incrementVersion(book.getId(), Instant.now());
+        assertThrows(OptimisticLockingFailureException.class, () -> bookService.delete(book.getId(), checked));
+        assertTrue(bookRepository.existsById(book.getId()));
+    }
+
+    // OPTIMISTIC_FORCE_INCREMENT is applied at commit, so each service call has to commit on its own
+    @Test
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    void relationChangesBumpInverseSideVersion() {
+        Author author = new Author();
+        author.setName("Versioned author");
+        Long authorId = authorService.create(author).getId();
+        Long bookId = bookService.create(new Book()).getId();
+        try {
+            long before = authorService.getVersion(authorId);
+            bookService.addAuthorToBook(bookId, authorId);
+            assertTrue(authorService.getVersion(authorId) > before);
+            assertThrows(PreconditionFailedException.class, () -> authorService.delete(authorId, before));
+        } finally {
+            authorService.delete(authorId);
+            bookService.delete(bookId);
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package su.ezhidze.libapi;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.databind.CBORMapper;
+import com.fasterxml.jackson.dataformat.smile.databind.SmileMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.transaction.annotation.Transactional;
+import su.ezhidze.libapi.dto.BookDto;
+import su.ezhidze.libapi.entity.Book;
+import su.ezhidze.libapi.service.BookService;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+@TestPropertySource(locations = "classpath:application-test.properties")
+@Transactional
+class ContentNegotiationTests {
+
+    private static final MediaType CBOR = MediaType.parseMediaType("application/cbor");
+
+    private static final MediaType SMILE = MediaType.parseMediaType("application/x-jackson-smile");
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private BookService bookService;
+
+    @Test
+    void bookIsReturnedInRequestedFormat() throws Exception {
+        Book book = new Book();
+        book.setTitle("Negotiated");
+        Long id = bookService.create(book).getId();
+
+        byte[] cbor = mockMvc.perform(get("/api/books/" + id).accept(CBOR))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith(CBOR))
+                .andReturn().getResponse().getContentAsByteArray();
+        assertEquals("Negotiated", new CBORMapper().readValue(cbor, BookDto.class).getTitle());
+
+        byte[] smile = mockMvc.perform(get("/api/books/" + id).accept(SMILE))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith(SMILE))
+                .andReturn().getResponse().getContentAsByteArray();
+        assertEquals("Negotiated", new SmileMapper().readValue(smile, BookDto.class).getTitle());
+
+        mockMvc.perform(get("/api/books/" + id))
+                .andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_JSON));
+    }
+
+    @Test
+    void cborRequestBodyIsAccepted() throws Exception {
+        ObjectMapper cborMapper = new CBORMapper();
+        byte[] body = cborMapper.writeValueAsBytes(new BookDto(null, "Binary", 2024, "cbor-isbn", 120, null, null));
+        byte[] created = mockMvc.perform(post("/api/books").contentType(CBOR).accept(CBOR).content(body))
+                .andExpect(status().isCreated())
+                .andReturn().getResponse().getContentAsByteArray();
+        BookDto dto = cborMapper.readValue(created, BookDto.class);
+        assertEquals("Binary", dto.getTitle());
+        assertNotNull(dto.getId());
+    }
+}
@@ -0,0 +1,130 @@
+package su.ezhidze.libapi;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.transaction.annotation.Transactional;
+import su.ezhidze.libapi.entity.Author;
+import su.ezhidze.libapi.entity.Book;
+import su.ezhidze.libapi.service.AuthorService;
+import su.ezhidze.libapi.service.BookService;
+
+import static org.hamcrest.Matchers.nullValue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+@TestPropertySource(locations = "classpath:application-test.properties")
+@Transactional
+class EndpointSqlBudgetTests {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private BookService bookService;
+
+    @Autowired
+    private AuthorService authorService;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    private Long bookId;
+
+    private Long authorId;
+
+    @BeforeEach
+    void setUp() {
+        Author author = new Author();
+        author.setName("Budget author");
+        authorId = authorService.create(author).getId();
+        for (int i = 0; i < 30; i++) {
+            Book book = new Book();
+            book.setTitle("Budget book " + i);
+            bookId = bookService.create(book).getId();
+            bookService.addAuthorToBook(bookId, authorId);
+        }
+        entityManager.flush();
+        entityManager.clear();
+    }
+
+    @Test
+    void getBookStaysWithinBudget() throws Throwable {
+        SqlBudget.assertMaxStatements(1, () -> mockMvc.perform(get("/api/books/" + bookId)).andExpect(status().isOk()));
+    }
+
+    @Test
+    void getAuthorStaysWithinBudget() throws Throwable {
+        SqlBudget.assertMaxStatements(1, () -> mockMvc.perform(get("/api/authors/" + authorId)).andExpect(status().isOk()));
+    }
+
+    @Test
+    void listBooksHasNoNPlusOne() throws Throwable {
+        SqlBudget.assertNoRepeatedStatements(3, () -> mockMvc.perform(get("/api/books?limit=20")).andExpect(status().isOk()));
+        SqlBudget.assertMaxStatements(2, () -> mockMvc.perform(get("/api/books?limit=20")).andExpect(status().isOk()));
+    }
+
+    @Test
+    void sparseBookIsOneProjection() throws Throwable {
+        SqlBudget.assertMaxStatements(1, () -> mockMvc.perform(get("/api/books/" + bookId + "?fields=title,isbn"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.title").value("Budget book 29"))
+                .andExpect(jsonPath("$.pageCount").doesNotExist())
+                .andExpect(jsonPath("$.authorIds").doesNotExist()));
+    }
+
+    @Test
+    void expandedBooksFetchRelationsInOneJoinedQuery() throws Throwable {
+        SqlBudget.assertMaxStatements(1, () -> mockMvc.perform(get("/api/books/" + bookId + "?expand=authors,publisher"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.authors[0].name").value("Budget author"))
+                .andExpect(jsonPath("$.authors[0].bookIds").doesNotExist())
+                .andExpect(jsonPath("$.publisher").value(nullValue())));
+        SqlBudget.assertMaxStatements(2, () -> mockMvc.perform(get("/api/books?limit=20&fields=title&expand=authors"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.items.length()").value(20))
+                .andExpect(jsonPath("$.items[0].authors[0].name").value("Budget author"))
+                .andExpect(jsonPath("$.items[0].isbn").doesNotExist()));
+    }
+
+    @Test
+    void batchGetIsOneQueryInRequestOrder() throws Throwable {
+        String body = "{\"ids\":[" + bookId + ",-1," + bookId + "]}";
+        SqlBudget.assertMaxStatements(1, () -> mockMvc.perform(post("/api/books/batch")
+                        .contentType(MediaType.APPLICATION_JSON).content(body))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(3))
+                .andExpect(jsonPath("$[0].item.title").value("Budget book 29"))
+                .andExpect(jsonPath("$[0].item.authorIds[0]").value(authorId))
+                .andExpect(jsonPath("$[1].found").value(false))
+                .andExpect(jsonPath("$[1].key").value(-1))
+                .andExpect(jsonPath("$[2].item.id").value(bookId)));
+        SqlBudget.assertMaxStatements(1, () -> mockMvc.perform(post("/api/authors/batch")
+                        .contentType(MediaType.APPLICATION_JSON).content("{\"names\":[\"Nobody\",\"Budget author\"]}"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].found").value(false))
+                .andExpect(jsonPath("$[1].item.bookIds.length()").value(30)));
+    }
+
+    @Test
+    void sparseAuthorSkipsBookIds() throws Throwable {
+        SqlBudget.assertMaxStatements(1, () -> mockMvc.perform(get("/api/authors/" + authorId + "?fields=name"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.name").value("Budget author"))
+                .andExpect(jsonPath("$.bookIds").doesNotExist()));
+        mockMvc.perform(get("/api/authors/" + authorId + "?fields=name,shoeSize")).andExpect(status().isBadRequest());
+    }
+}
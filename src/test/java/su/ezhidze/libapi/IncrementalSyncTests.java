@@ -0,0 +1,104 @@
+package su.ezhidze.libapi;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.transaction.annotation.Transactional;
+import su.ezhidze.libapi.dto.BookDto;
+import su.ezhidze.libapi.dto.SyncEntryDto;
+import su.ezhidze.libapi.dto.SyncPageDto;
+import su.ezhidze.libapi.entity.Author;
+import su.ezhidze.libapi.entity.Book;
+import su.ezhidze.libapi.service.AuthorService;
+import su.ezhidze.libapi.service.BookService;
+import su.ezhidze.libapi.service.SyncService;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// A zero settle time lets the rows written inside the test transaction be synced right away
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+@TestPropertySource(locations = "classpath:application-test.properties", properties = "libapi.changes.settle-time=0s")
+@Transactional
+class IncrementalSyncTests {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private BookService bookService;
+
+    @Autowired
+    private AuthorService authorService;
+
+    @Autowired
+    private SyncService syncService;
+
+    @Test
+    void relationChangesTouchBothSides() throws Exception {
+        Book book = bookService.create(new Book());
+        Author author = new Author();
+        author.setName("Touched author");
+        author = authorService.create(author);
+        Instant bookCreated = book.getLastModified();
+        Instant authorCreated = author.getLastModified();
+        assertNotNull(bookCreated);
+        Thread.sleep(2);
+
+        bookService.addAuthorToBook(book.getId(), author.getId());
+        assertTrue(bookService.read(book.getId()).getLastModified().isAfter(bookCreated));
+        assertTrue(authorService.read(author.getId()).getLastModified().isAfter(authorCreated));
+    }
+
+    @Test
+    void syncReturnsModifiedRowsAndTombstonesAfterWatermark() throws Exception {
+        Book untouched = new Book();
+        untouched.setTitle("Before watermark");
+        bookService.create(untouched);
+        Instant watermark = syncService.books(null, null, 1000).getWatermark();
+        Thread.sleep(2);
+
+        List<Long> ids = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            Book book = new Book();
+            book.setTitle("After watermark " + i);
+            ids.add(bookService.create(book).getId());
+        }
+        bookService.delete(ids.get(0));
+
+        List<SyncEntryDto<BookDto>> entries = new ArrayList<>();
+        String cursor = null;
+        SyncPageDto<BookDto> page;
+        do {
+            page = syncService.books(watermark.toString(), cursor, 2);
+            entries.addAll(page.getItems());
+            cursor = page.getNextCursor();
+        } while (cursor != null);
+
+        assertEquals(3, entries.size());
+        assertEquals(List.of(ids.get(1), ids.get(2), ids.get(0)), entries.stream().map(SyncEntryDto::getId).toList());
+        assertEquals("After watermark 1", entries.get(0).getItem().getTitle());
+        assertTrue(entries.get(2).isDeleted());
+        assertNull(entries.get(2).getItem());
+        assertFalse(page.getWatermark().isBefore(entries.get(2).getLastModified()));
+
+        assertTrue(syncService.books(page.getWatermark().toString(), null, 10).getItems().isEmpty());
+    }
+
+    @Test
+    void invalidWatermarkIsRejected() throws Exception {
+        mockMvc.perform(get("/api/books/changes?since=yesterday")).andExpect(status().isBadRequest());
+        mockMvc.perform(get("/api/authors/changes?since=2024-01-01T00:00:00Z")).andExpect(status().isOk());
+    }
+}
@@ -1,5 +1,6 @@
 package su.ezhidze.libapi;
 
+import com.zaxxer.hikari.HikariDataSource;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
@@ -7,15 +8,33 @@ import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.context.TestPropertySource;
 import org.springframework.transaction.annotation.Transactional;
+import su.ezhidze.libapi.dto.BatchRequestDto;
+import su.ezhidze.libapi.dto.BatchResultDto;
+import su.ezhidze.libapi.dto.BookAuthorsDto;
+import su.ezhidze.libapi.dto.BookDto;
+import su.ezhidze.libapi.dto.BulkResultDto;
+import su.ezhidze.libapi.dto.PageDto;
 import su.ezhidze.libapi.entity.Author;
 import su.ezhidze.libapi.entity.Book;
 import su.ezhidze.libapi.entity.Publisher;
+import su.ezhidze.libapi.exception.BadArgumentException;
 import su.ezhidze.libapi.exception.DuplicateEntryException;
 import su.ezhidze.libapi.exception.RecordNotFoundException;
 import su.ezhidze.libapi.service.AuthorService;
 import su.ezhidze.libapi.service.BookService;
+import su.ezhidze.libapi.service.ExportService;
 import su.ezhidze.libapi.service.PublisherService;
 
+import javax.sql.DataSource;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+
 import static org.junit.jupiter.api.Assertions.*;
 
 @SpringBootTest
@@ -34,6 +53,12 @@ class LibApiApplicationTests {
     @Autowired
     private PublisherService publisherService;
 
+    @Autowired
+    private ExportService exportService;
+
+    @Autowired
+    private DataSource dataSource;
+
     @Test
     void testAddBook_Success() {
         Book book = new Book();
@@ -57,6 +82,17 @@ class LibApiApplicationTests {
         assertTrue(ex.getMessage().contains("already exists"));
     }
 
+    @Test
+    public void testAddBook_DuplicateNormalizedISBN() {
+        Book book1 = new Book();
+        book1.setIsbn("978-0-13-468599-1");
+        Book book2 = new Book();
+        book2.setIsbn("0134685997");
+        bookService.create(book1);
+        assertEquals(book1.getId(), bookService.getBookByIsbn("9780134685991").getId());
+        assertThrows(DuplicateEntryException.class, () -> bookService.create(book2));
+    }
+
     @Test
     public void testGetBookByIsbn_Found() {
         Book book = new Book();
@@ -76,6 +112,24 @@ class LibApiApplicationTests {
         assertTrue(ex.getMessage().contains("not found"));
     }
 
+    @Test
+    public void testGetBooksByIsbnBatch() {
+        Book normalized = new Book();
+        normalized.setIsbn("978-0-13-468599-1");
+        Book freeForm = new Book();
+        freeForm.setIsbn("727");
+        bookService.create(normalized);
+        bookService.create(freeForm);
+        List<BatchResultDto<BookDto>> results = bookService.readBatch(
+                new BatchRequestDto(null, Arrays.asList("0134685997", "1800", "727", null), null));
+        assertEquals(4, results.size());
+        assertEquals(normalized.getId(), results.get(0).getItem().getId());
+        assertFalse(results.get(1).isFound());
+        assertEquals(freeForm.getId(), results.get(2).getItem().getId());
+        assertFalse(results.get(3).isFound());
+        assertThrows(BadArgumentException.class, () -> bookService.readBatch(new BatchRequestDto(List.of(1L), null, List.of("x"))));
+    }
+
     @Test
     public void testGetBookById_Found() {
         Book book = new Book();
@@ -126,6 +180,83 @@ class LibApiApplicationTests {
         assertTrue(ex.getMessage().contains("not found"));
     }
 
+    @Test
+    public void testListBooks_KeysetPagination() {
+        List<Long> created = new ArrayList<>();
+        for (String title : List.of("C title", "A title", "B title")) {
+            Book book = new Book();
+            book.setTitle(title);
+            created.add(bookService.create(book).getId());
+        }
+        List<Long> seen = new ArrayList<>();
+        String cursor = null;
+        do {
+            PageDto<BookDto> page = bookService.list("title", cursor, 2);
+            assertTrue(page.getItems().size() <= 2);
+            page.getItems().forEach(book -> seen.add(book.getId()));
+            cursor = page.getNextCursor();
+        } while (cursor != null);
+        assertEquals(seen.size(), seen.stream().distinct().count());
+        assertTrue(seen.indexOf(created.get(1)) < seen.indexOf(created.get(2)));
+        assertTrue(seen.indexOf(created.get(2)) < seen.indexOf(created.get(0)));
+    }
+
+    @Test
+    public void testListBooks_CursorForOtherSort() {
+        Book book = new Book();
+        book.setTitle("Test title");
+        bookService.create(book);
+        bookService.create(new Book());
+        String cursor = bookService.list("id", null, 1).getNextCursor();
+        assertNotNull(cursor);
+        assertThrows(BadArgumentException.class, () -> bookService.list("title", cursor, 1));
+    }
+
+    @Test
+    public void testBulkCreateBooks() {
+        Author author = new Author();
+        author.setName("Bulk author");
+        Long authorId = authorService.create(author).getId();
+        List<BookDto> dtos = List.of(
+                new BookDto(null, "First", 2020, "bulk-isbn-1", 100, null, Set.of(authorId)),
+                new BookDto(null, "Second", 2021, "bulk-isbn-1", 200, null, null),
+                new BookDto(null, "Third", 2022, "bulk-isbn-2", 300, null, Set.of(authorId + 1000)),
+                new BookDto(null, "", 2023, "bulk-isbn-3", 400, null, null));
+        List<BulkResultDto> results = bookService.bulkCreate(dtos);
+        assertEquals(4, results.size());
+        assertTrue(results.get(0).isCreated());
+        assertFalse(results.get(1).isCreated());
+        assertTrue(results.get(1).getReason().contains("already exists"));
+        assertFalse(results.get(2).isCreated());
+        assertTrue(results.get(2).getReason().contains("not found"));
+        assertFalse(results.get(3).isCreated());
+        Book created = bookService.read(results.get(0).getId());
+        assertEquals("bulk-isbn-1", created.getIsbn());
+        assertEquals(1, created.getAuthors().size());
+    }
+
+    @Test
+    public void testExportBooks() throws IOException {
+        Author author = authorService.create(new Author());
+        Book book = new Book();
+        book.setTitle("Exported title");
+        Book saved = bookService.create(book);
+        bookService.addAuthorToBook(saved.getId(), author.getId());
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        exportService.exportBooks(out);
+        String line = out.toString(StandardCharsets.UTF_8).lines()
+                .filter(l -> l.contains("\"id\":" + saved.getId() + ","))
+                .findFirst().orElseThrow();
+        assertTrue(line.contains("Exported title"));
+        assertTrue(line.contains("\"authorIds\":[" + author.getId() + "]"));
+    }
+
+    // Without it Connector/J reads the whole export into memory whatever the fetch size
+    @Test
+    public void testExportConnectionsUseCursorFetch() throws SQLException {
+        assertEquals("true", dataSource.unwrap(HikariDataSource.class).getDataSourceProperties().getProperty("useCursorFetch"));
+    }
+
     @Test
     public void testAddAuthor_Success() {
         Author author = new Author();
@@ -248,8 +379,11 @@ class LibApiApplicationTests {
         Author savedAuthor = authorService.create(author);
         Book savedBook = bookService.create(book);
         bookService.addAuthorToBook(savedBook.getId(), savedAuthor.getId());
+        long bookVersion = bookService.getVersion(savedBook.getId());
         authorService.delete(savedAuthor.getId());
-        assertTrue(savedBook.getAuthors().isEmpty());
+        assertEquals(0, bookService.getAuthorIds(savedBook.getId()).length);
+        assertTrue(bookService.read(savedBook.getId()).getAuthors().isEmpty());
+        assertTrue(bookService.getVersion(savedBook.getId()) > bookVersion);
     }
 
     @Test
@@ -259,8 +393,11 @@ class LibApiApplicationTests {
         Author savedAuthor = authorService.create(author);
         Book savedBook = bookService.create(book);
         authorService.addBookToAuthor(savedAuthor.getId(), savedBook.getId());
+        long authorVersion = authorService.getVersion(savedAuthor.getId());
         bookService.delete(savedBook.getId());
-        assertTrue(savedAuthor.getBooks().isEmpty());
+        assertEquals(0, authorService.getBookIdsByAuthor(savedAuthor.getId()).length);
+        assertTrue(authorService.read(savedAuthor.getId()).getBooks().isEmpty());
+        assertTrue(authorService.getVersion(savedAuthor.getId()) > authorVersion);
     }
 
     @Test
@@ -283,6 +420,38 @@ class LibApiApplicationTests {
         assertTrue(bookService.getBookAuthors(savedBook.getId()).contains(result));
     }
 
+    @Test
+    public void testRelationIdProjections() {
+        Author author = authorService.create(new Author());
+        Publisher publisher = publisherService.create(new Publisher());
+        Book savedBook = bookService.create(new Book());
+        bookService.addAuthorToBook(savedBook.getId(), author.getId());
+        publisherService.addBookToPublisher(publisher.getId(), savedBook.getId());
+        assertArrayEquals(new long[]{author.getId()}, bookService.getAuthorIds(savedBook.getId()));
+        assertArrayEquals(new long[]{savedBook.getId()}, authorService.getBookIdsByAuthor(author.getId()));
+        assertArrayEquals(new long[]{savedBook.getId()}, publisherService.getBookIdsByPublisher(publisher.getId()));
+        assertThrows(RecordNotFoundException.class, () -> publisherService.getBookIdsByPublisher(publisher.getId() + 1));
+    }
+
+    @Test
+    public void testReplaceBookAuthors() {
+        Author first = authorService.create(new Author());
+        Author second = authorService.create(new Author());
+        Author third = authorService.create(new Author());
+        Book savedBook = bookService.create(new Book());
+        bookService.addAuthorToBook(savedBook.getId(), first.getId());
+        bookService.addAuthorToBook(savedBook.getId(), second.getId());
+        long[] expected = new long[]{second.getId(), third.getId()};
+        BookAuthorsDto replaced = bookService.replaceAuthors(savedBook.getId(), Set.of(second.getId(), third.getId()));
+        assertArrayEquals(expected, replaced.getAuthorIds());
+        assertEquals(bookService.getVersion(savedBook.getId()), replaced.getVersion());
+        assertArrayEquals(expected, Arrays.stream(bookService.getAuthorIds(savedBook.getId())).sorted().toArray());
+        assertThrows(RecordNotFoundException.class,
+                () -> bookService.replaceAuthors(savedBook.getId(), Set.of(third.getId() + 1000)));
+        assertThrows(RecordNotFoundException.class,
+                () -> bookService.replaceAuthors(savedBook.getId() + 1000, Set.of()));
+    }
+
     @Test
     public void testAddPublisher() {
         Publisher publisher = new Publisher();
@@ -366,7 +535,23 @@ class LibApiApplicationTests {
         publisherService.addBookToPublisher(savedPublisher.getId(), savedBook.getId());
         assertTrue(savedPublisher.getBooks().contains(savedBook));
         bookService.delete(savedBook.getId());
-        assertFalse(savedPublisher.getBooks().contains(savedBook));
+        assertEquals(0, publisherService.getBookIdsByPublisher(savedPublisher.getId()).length);
+        assertTrue(publisherService.read(savedPublisher.getId()).getBooks().isEmpty());
+    }
+
+    @Test
+    public void testDetachBooksByDeletingThePublisher() {
+        Publisher savedPublisher = publisherService.create(new Publisher());
+        Book first = bookService.create(new Book());
+        Book second = bookService.create(new Book());
+        publisherService.addBookToPublisher(savedPublisher.getId(), first.getId());
+        publisherService.addBookToPublisher(savedPublisher.getId(), second.getId());
+        long firstVersion = bookService.getVersion(first.getId());
+        publisherService.delete(savedPublisher.getId());
+        assertThrows(RecordNotFoundException.class, () -> publisherService.read(savedPublisher.getId()));
+        assertNull(bookService.read(first.getId()).getPublisher());
+        assertNull(bookService.read(second.getId()).getPublisher());
+        assertTrue(bookService.getVersion(first.getId()) > firstVersion);
     }
 
 }
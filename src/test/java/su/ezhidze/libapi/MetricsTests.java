@@ -0,0 +1,54 @@
+package su.ezhidze.libapi;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.transaction.annotation.Transactional;
+import su.ezhidze.libapi.entity.Author;
+import su.ezhidze.libapi.exception.RecordNotFoundException;
+import su.ezhidze.libapi.metrics.StatementCounter;
+import su.ezhidze.libapi.service.AuthorService;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+@ActiveProfiles("test")
+@TestPropertySource(locations = "classpath:application-test.properties")
+@Transactional
+class MetricsTests {
+
+    @Autowired
+    private AuthorService authorService;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Test
+    void serviceCallsAreTimedAndErrorsCounted() {
+        Author author = new Author();
+        author.setName("Metrics author");
+        authorService.create(author);
+        assertThrows(RecordNotFoundException.class, () -> authorService.read(author.getId() + 1000));
+
+        Timer creates = meterRegistry.find("libapi.service.calls")
+                .tags("service", "AuthorService", "method", "create", "exception", "none").timer();
+        assertNotNull(creates);
+        assertTrue(creates.count() >= 1);
+        assertTrue(meterRegistry.counter("libapi.service.errors",
+                "service", "AuthorService", "method", "read", "exception", "RecordNotFoundException").count() >= 1);
+    }
+
+    @Test
+    void statementsAreCountedOnlyInsideWindow() {
+        Author author = new Author();
+        author.setName("Counted author");
+        StatementCounter.begin();
+        authorService.create(author);
+        assertTrue(StatementCounter.end().getCount() >= 1);
+        assertEquals(0, StatementCounter.end().getCount());
+    }
+}
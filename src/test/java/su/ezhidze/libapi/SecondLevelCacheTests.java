@@ -0,0 +1,128 @@
+package su.ezhidze.libapi;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import jakarta.persistence.PersistenceContext;
+import org.hibernate.Cache;
+import org.hibernate.SessionFactory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import su.ezhidze.libapi.dto.BookDto;
+import su.ezhidze.libapi.entity.Author;
+import su.ezhidze.libapi.entity.Book;
+import su.ezhidze.libapi.service.AuthorService;
+import su.ezhidze.libapi.service.BookService;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Not @Transactional: the second-level cache is only written and invalidated as transactions commit.
+@SpringBootTest
+@ActiveProfiles("test")
+@TestPropertySource(locations = "classpath:application-test.properties", properties = "libapi.cache.enabled=true")
+class SecondLevelCacheTests {
+
+    private static final String AUTHOR_BOOKS = Author.class.getName() + ".books";
+
+    @Autowired
+    private BookService bookService;
+
+    @Autowired
+    private AuthorService authorService;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    private final List<Long> bookIds = new ArrayList<>();
+
+    private final List<Long> authorIds = new ArrayList<>();
+
+    @AfterEach
+    void tearDown() {
+        for (Long bookId : bookIds) bookService.delete(bookId);
+        for (Long authorId : authorIds) authorService.delete(authorId);
+    }
+
+    @Test
+    void updatedBookIsNotServedStale() {
+        Book book = new Book();
+        book.setTitle("Cached title");
+        Long bookId = bookService.create(book).getId();
+        bookIds.add(bookId);
+        bookService.read(bookId);
+        assertTrue(cache().contains(Book.class, bookId));
+
+        Book changes = new Book();
+        changes.setTitle("Updated title");
+        bookService.update(bookId, changes);
+        assertEquals("Updated title", inTransaction(() -> entityManager.find(Book.class, bookId).getTitle()));
+    }
+
+    @Test
+    void deleteEvictsBookAndAuthorBooks() {
+        Long authorId = createAuthor("Cached delete author");
+        Long bookId = bookService.create(new Book()).getId();
+        bookService.addAuthorToBook(bookId, authorId);
+        warmAuthorBooks(authorId);
+        inTransaction(() -> entityManager.find(Book.class, bookId));
+        assertTrue(cache().contains(Book.class, bookId));
+        assertTrue(cache().containsCollection(AUTHOR_BOOKS, authorId));
+
+        bookService.delete(bookId);
+        assertFalse(cache().contains(Book.class, bookId));
+        assertFalse(cache().containsCollection(AUTHOR_BOOKS, authorId));
+        assertTrue(authorService.read(authorId).getBooks().isEmpty());
+    }
+
+    @Test
+    void bulkCreateEvictsAuthorBooks() {
+        Long authorId = createAuthor("Cached bulk author");
+        warmAuthorBooks(authorId);
+        assertTrue(cache().containsCollection(AUTHOR_BOOKS, authorId));
+
+        BookDto dto = new BookDto(null, "Bulk cached book", 2020, "bulk-cached-isbn", 100, null, Set.of(authorId));
+        Long bookId = bookService.bulkCreate(List.of(dto)).get(0).getId();
+        bookIds.add(bookId);
+        assertFalse(cache().containsCollection(AUTHOR_BOOKS, authorId));
+        assertEquals(Set.of(bookId), inTransaction(() -> entityManager.find(Author.class, authorId).getBooks().stream()
+                .map(Book::getId).collect(Collectors.toSet())));
+    }
+
+    private Long createAuthor(String name) {
+        Author author = new Author();
+        author.setName(name);
+        Long authorId = authorService.create(author).getId();
+        authorIds.add(authorId);
+        return authorId;
+    }
+
+    // Initializing the lazy collection in its own transaction puts it into the collection region
+    private void warmAuthorBooks(Long authorId) {
+        inTransaction(() -> entityManager.find(Author.class, authorId).getBooks().size());
+    }
+
+    private <T> T inTransaction(Supplier<T> work) {
+        return new TransactionTemplate(transactionManager).execute(status -> work.get());
+    }
+
+    private Cache cache() {
+        return entityManagerFactory.unwrap(SessionFactory.class).getCache();
+    }
+}
@@ -0,0 +1,48 @@
+package su.ezhidze.libapi;
+
+import org.junit.jupiter.api.function.ThrowingSupplier;
+import su.ezhidze.libapi.metrics.SqlTrace;
+import su.ezhidze.libapi.metrics.StatementCounter;
+
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Statement budgets for tests: runs an action (a service call or a MockMvc request) in a recording
+ * {@link StatementCounter} window and fails with the executed SQL when the budget is exceeded.
+ */
+public final class SqlBudget {
+
+    private SqlBudget() {
+    }
+
+    public static <T> T assertMaxStatements(int maxStatements, ThrowingSupplier<T> action) throws Throwable {
+        StatementCounter.begin(true);
+        T result;
+        SqlTrace trace;
+        try {
+            result = action.get();
+        } finally {
+            trace = StatementCounter.end();
+        }
+        SqlTrace executed = trace;
+        assertTrue(executed.getCount() <= maxStatements, () -> "Expected at most " + maxStatements +
+                " statements but " + executed.getCount() + " ran:\n" + String.join("\n", executed.getStatements()));
+        return result;
+    }
+
+    public static <T> T assertNoRepeatedStatements(int threshold, ThrowingSupplier<T> action) throws Throwable {
+        StatementCounter.begin(true);
+        T result;
+        SqlTrace trace;
+        try {
+            result = action.get();
+        } finally {
+            trace = StatementCounter.end();
+        }
+        Map<String, Integer> repeated = trace.repeatedShapes(threshold);
+        assertTrue(repeated.isEmpty(), () -> "Repeated statements: " + repeated);
+        return result;
+    }
+}
@@ -0,0 +1,105 @@
+package su.ezhidze.libapi;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.transaction.annotation.Transactional;
+import su.ezhidze.libapi.dto.AuthorDto;
+import su.ezhidze.libapi.dto.BookDto;
+import su.ezhidze.libapi.dto.PageDto;
+import su.ezhidze.libapi.dto.PublisherDto;
+import su.ezhidze.libapi.entity.Author;
+import su.ezhidze.libapi.entity.Book;
+import su.ezhidze.libapi.entity.Publisher;
+import su.ezhidze.libapi.service.AuthorService;
+import su.ezhidze.libapi.service.BookService;
+import su.ezhidze.libapi.service.DtoMapper;
+import su.ezhidze.libapi.service.PageCursor;
+import su.ezhidze.libapi.service.PublisherService;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+@ActiveProfiles("test")
+@TestPropertySource(locations = "classpath:application-test.properties",
+        properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+@Transactional
+class StatementCountTests {
+
+    @Autowired
+    private BookService bookService;
+
+    @Autowired
+    private AuthorService authorService;
+
+    @Autowired
+    private PublisherService publisherService;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    private Statistics statistics;
+
+    private Publisher publisher;
+
+    private final List<Author> authors = new ArrayList<>();
+
+    private final List<Book> books = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        statistics = entityManager.getEntityManagerFactory().unwrap(SessionFactory.class).getStatistics();
+        publisher = publisherService.create(new Publisher());
+        for (int i = 0; i < 3; i++) authors.add(authorService.create(new Author()));
+        for (int i = 0; i < 3; i++) {
+            Book book = bookService.create(new Book());
+            books.add(book);
+            publisherService.addBookToPublisher(publisher.getId(), book.getId());
+            for (Author author : authors) bookService.addAuthorToBook(book.getId(), author.getId());
+        }
+        entityManager.flush();
+        entityManager.clear();
+        statistics.clear();
+    }
+
+    @Test
+    void readBookUsesOneStatement() {
+        BookDto dto = DtoMapper.toDto(bookService.read(books.get(0).getId()));
+        assertEquals(3, dto.getAuthorIds().size());
+        assertEquals(publisher.getId(), dto.getPublisherId());
+        assertEquals(1, statistics.getPrepareStatementCount());
+    }
+
+    @Test
+    void readAuthorUsesOneStatement() {
+        AuthorDto dto = DtoMapper.toDto(authorService.read(authors.get(0).getId()));
+        assertEquals(3, dto.getBookIds().size());
+        assertEquals(1, statistics.getPrepareStatementCount());
+    }
+
+    @Test
+    void readPublisherUsesOneStatement() {
+        PublisherDto dto = DtoMapper.toDto(publisherService.read(publisher.getId()));
+        assertEquals(3, dto.getBookIds().size());
+        assertEquals(1, statistics.getPrepareStatementCount());
+    }
+
+    @Test
+    void listBooksBatchesAuthorLoading() {
+        String cursor = new PageCursor("id", books.get(0).getId() - 1, null).encode();
+        PageDto<BookDto> page = bookService.list("id", cursor, 3);
+        assertEquals(3, page.getItems().size());
+        page.getItems().forEach(dto -> assertEquals(3, dto.getAuthorIds().size()));
+        assertEquals(2, statistics.getPrepareStatementCount());
+    }
+}
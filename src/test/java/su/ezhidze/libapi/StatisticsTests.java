@@ -0,0 +1,120 @@
+package su.ezhidze.libapi;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+import su.ezhidze.libapi.entity.Author;
+import su.ezhidze.libapi.entity.Book;
+import su.ezhidze.libapi.entity.Publisher;
+import su.ezhidze.libapi.repository.CatalogStatisticRepository;
+import su.ezhidze.libapi.service.AuthorService;
+import su.ezhidze.libapi.service.BookService;
+import su.ezhidze.libapi.service.PublisherService;
+import su.ezhidze.libapi.service.StatisticsService;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// Not @Transactional: the counters only follow committed changes.
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+@TestPropertySource(locations = "classpath:application-test.properties")
+class StatisticsTests {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private BookService bookService;
+
+    @Autowired
+    private AuthorService authorService;
+
+    @Autowired
+    private PublisherService publisherService;
+
+    @Autowired
+    private StatisticsService statisticsService;
+
+    @Autowired
+    private CatalogStatisticRepository statisticRepository;
+
+    private Long bookId;
+
+    private Long authorId;
+
+    private Long publisherId;
+
+    @AfterEach
+    void tearDown() {
+        if (bookId != null) bookService.delete(bookId);
+        if (authorId != null) authorService.delete(authorId);
+        if (publisherId != null) publisherService.delete(publisherId);
+        statisticRepository.deleteAllInBatch();
+    }
+
+    @Test
+    void committedChangesUpdateCounters() throws Exception {
+        long booksBefore = statisticsService.summary().getBooks();
+        Book book = new Book();
+        book.setPublicationYear(1867);
+        book.setPageCount(420);
+        bookId = bookService.create(book).getId();
+        Author author = new Author();
+        author.setName("Statistics author");
+        authorId = authorService.create(author).getId();
+        Publisher publisher = new Publisher();
+        publisher.setName("Statistics publisher");
+        publisherId = publisherService.create(publisher).getId();
+
+        long in1867 = statisticsService.booksInYear(1867);
+        long in1868 = statisticsService.booksInYear(1868);
+        bookService.addAuthorToBook(bookId, authorId);
+        bookService.setPublisher(bookId, publisherId);
+        assertEquals(booksBefore + 1, statisticsService.summary().getBooks());
+        assertEquals(1, statisticsService.booksOfAuthor(authorId));
+        assertEquals(1, statisticsService.booksOfPublisher(publisherId));
+        // An update after the links moves pages only and leaves the author and publisher counts alone
+        Book loaded = bookService.read(bookId);
+        loaded.setPageCount(430);
+        bookService.update(bookId, loaded);
+        assertEquals(1, statisticsService.booksOfAuthor(authorId));
+        assertEquals(1, statisticsService.booksOfPublisher(publisherId));
+
+        mockMvc.perform(get("/api/stats/years/1867"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.books").value(statisticsService.booksInYear(1867)));
+        mockMvc.perform(get("/api/stats/page-counts"))
+                .andExpect(jsonPath("$[4].from").value(400));
+
+        bookService.removeAuthorFromBook(bookId, authorId);
+        assertEquals(0, statisticsService.booksOfAuthor(authorId));
+        book = bookService.read(bookId);
+        book.setPublicationYear(1868);
+        bookService.update(bookId, book);
+        assertEquals(in1867 - 1, statisticsService.booksInYear(1867));
+        assertEquals(in1868 + 1, statisticsService.booksInYear(1868));
+    }
+
+    @Test
+    void checkpointWritesCurrentCounters() {
+        statisticsService.rebuild();
+        Book book = new Book();
+        book.setPageCount(42);
+        bookId = bookService.create(book).getId();
+        statisticsService.checkpoint();
+        assertFalse(statisticRepository.findAll().isEmpty());
+        long books = statisticRepository.findAll().stream()
+                .filter(row -> row.getDimension().name().equals("TOTAL") && row.getBucket() == 0)
+                .findFirst().orElseThrow().getAmount();
+        assertEquals(statisticsService.summary().getBooks(), books);
+    }
+}
@@ -0,0 +1,107 @@
+package su.ezhidze.libapi.benchmark;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.test.context.TestPropertySource;
+import su.ezhidze.libapi.dto.BookDto;
+import su.ezhidze.libapi.dto.BulkResultDto;
+import su.ezhidze.libapi.service.BookService;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Closed-loop load test of the /api/books read endpoints against an in-memory H2 database: CLIENTS
+ * concurrent clients each issue REQUESTS_PER_CLIENT requests back to back, alternating a keyset page
+ * and a single-book read. Subclasses fix the request execution mode; run with {@code mvn -Pbenchmark test}
+ * and compare the printed lines.
+ */
+@Tag("benchmark")
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@TestPropertySource(locations = "classpath:benchmark.properties")
+abstract class BooksLoadBenchmark {
+
+    private static final int CLIENTS = Integer.getInteger("benchmark.clients", 1000);
+
+    private static final int REQUESTS_PER_CLIENT = Integer.getInteger("benchmark.requests", 20);
+
+    private static final int BOOKS = 2000;
+
+    @LocalServerPort
+    private int port;
+
+    @Value("${spring.threads.virtual.enabled}")
+    private boolean virtualThreads;
+
+    @Autowired
+    private BookService bookService;
+
+    @Test
+    void readBooksUnderLoad() throws Exception {
+        List<Long> ids = seed();
+        HttpClient client = HttpClient.newBuilder().executor(Executors.newVirtualThreadPerTaskExecutor()).build();
+        long[][] latencies = new long[CLIENTS][REQUESTS_PER_CLIENT];
+        AtomicInteger errors = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        long startedAt;
+        try (ExecutorService clients = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int c = 0; c < CLIENTS; c++) {
+                int clientIndex = c;
+                clients.submit(() -> {
+                    start.await();
+                    ThreadLocalRandom random = ThreadLocalRandom.current();
+                    for (int r = 0; r < REQUESTS_PER_CLIENT; r++) {
+                        String path = r % 2 == 0
+                                ? "/api/books?limit=20"
+                                : "/api/books/" + ids.get(random.nextInt(ids.size()));
+                        HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + path)).build();
+                        long sent = System.nanoTime();
+                        try {
+                            HttpResponse<Void> response = client.send(request, HttpResponse.BodyHandlers.discarding());
+                            if (response.statusCode() != 200) errors.incrementAndGet();
+                        } catch (Exception e) {
+                            errors.incrementAndGet();
+                        }
+                        latencies[clientIndex][r] = System.nanoTime() - sent;
+                    }
+                    return null;
+                });
+            }
+            startedAt = System.nanoTime();
+            start.countDown();
+        }
+        long elapsed = System.nanoTime() - startedAt;
+
+        long[] all = Arrays.stream(latencies).flatMapToLong(Arrays::stream).sorted().toArray();
+        System.out.printf("{\"mode\":\"%s\",\"clients\":%d,\"requests\":%d,\"errors\":%d,\"throughput\":%.1f," +
+                        "\"p50Ms\":%.2f,\"p99Ms\":%.2f}%n",
+                virtualThreads ? "virtual" : "platform", CLIENTS, all.length, errors.get(),
+                all.length / (elapsed / 1e9), percentile(all, 0.50), percentile(all, 0.99));
+        assertEquals(0, errors.get());
+    }
+
+    private List<Long> seed() {
+        List<BookDto> dtos = new ArrayList<>(BOOKS);
+        for (int i = 0; i < BOOKS; i++) {
+            dtos.add(new BookDto(null, "Book " + i, 1900 + i % 120, "load-" + i, 100 + i, null, null));
+        }
+        return bookService.bulkCreate(dtos).stream().map(BulkResultDto::getId).toList();
+    }
+
+    private static double percentile(long[] sorted, double quantile) {
+        return sorted[(int) Math.ceil(quantile * sorted.length) - 1] / 1e6;
+    }
+}
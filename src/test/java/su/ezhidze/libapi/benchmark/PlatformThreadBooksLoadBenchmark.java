@@ -0,0 +1,10 @@
+package su.ezhidze.libapi.benchmark;
+
+import org.springframework.test.context.TestPropertySource;
+
+@TestPropertySource(properties = {
+        "spring.datasource.url=jdbc:h2:mem:platform-load;MODE=MySQL;DB_CLOSE_DELAY=-1",
+        "spring.threads.virtual.enabled=false"
+})
+class PlatformThreadBooksLoadBenchmark extends BooksLoadBenchmark {
+}
@@ -0,0 +1,10 @@
+package su.ezhidze.libapi.benchmark;
+
+import org.springframework.test.context.TestPropertySource;
+
+@TestPropertySource(properties = {
+        "spring.datasource.url=jdbc:h2:mem:virtual-load;MODE=MySQL;DB_CLOSE_DELAY=-1",
+        "spring.threads.virtual.enabled=true"
+})
+class VirtualThreadBooksLoadBenchmark extends BooksLoadBenchmark {
+}
@@ -0,0 +1,134 @@
+package su.ezhidze.libapi.datasource;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.AbstractDataSource;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ReplicaRoutingDataSourceTests {
+
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private JdbcTemplate primary;
+
+    private JdbcTemplate replica;
+
+    @BeforeEach
+    void setUp() {
+        primary = new JdbcTemplate(h2("routing-primary"));
+        replica = new JdbcTemplate(h2("routing-replica"));
+        for (JdbcTemplate template : new JdbcTemplate[]{primary, replica}) {
+            template.execute("create table target (name varchar(20))");
+        }
+        primary.update("insert into target values ('primary')");
+        replica.update("insert into target values ('replica')");
+        replica.execute("create table replication_lag (seconds int)");
+        replica.update("insert into replication_lag values (0)");
+    }
+
+    @AfterEach
+    void tearDown() {
+        primary.execute("drop all objects");
+        replica.execute("drop all objects");
+    }
+
+    @Test
+    void readOnlyTransactionsGoToHealthyReplica() {
+        ReplicaRoutingDataSource routing = routing(Map.of("replica-0", replica.getDataSource()));
+        TransactionTemplate transactions = transactions(routing);
+
+        // Nothing is known about the replica before the first check
+        assertEquals("primary", currentTarget(transactions, true));
+        routing.checkReplicas();
+        assertEquals("replica", currentTarget(transactions, true));
+        assertEquals("primary", currentTarget(transactions, false));
+        assertEquals(1, meterRegistry.counter("libapi.datasource.connections", "target", "replica-0", "route", "read").count());
+        assertEquals(1, meterRegistry.counter("libapi.datasource.connections", "target", "primary", "route", "fallback").count());
+    }
+
+    @Test
+    void laggingReplicaFallsBackToPrimary() {
+        ReplicaRoutingDataSource routing = routing(Map.of("replica-0", replica.getDataSource()));
+        TransactionTemplate transactions = transactions(routing);
+
+        replica.update("update replication_lag set seconds = 60");
+        routing.checkReplicas();
+        assertFalse(routing.isHealthy("replica-0"));
+        assertEquals("primary", currentTarget(transactions, true));
+        assertEquals(60.0, meterRegistry.get("libapi.datasource.replica.lag").tag("target", "replica-0").gauge().value());
+
+        replica.update("update replication_lag set seconds = 1");
+        routing.checkReplicas();
+        assertEquals("replica", currentTarget(transactions, true));
+    }
+
+    @Test
+    void replicaRefusingConnectionsIsSkipped() {
+        AtomicBoolean down = new AtomicBoolean();
+        DataSource flaky = new AbstractDataSource() {
+            @Override
+            public Connection getConnection() throws SQLException {
+                if (down.get()) throw new SQLException("Connection refused");
+                return replica.getDataSource().getConnection();
+            }
+
+            @Override
+            public Connection getConnection(String username, String password) throws SQLException {
+                return getConnection();
+            }
+        };
+        Map<String, DataSource> replicas = new LinkedHashMap<>();
+        replicas.put("replica-0", replica.getDataSource());
+        replicas.put("replica-1", flaky);
+        ReplicaRoutingDataSource routing = routing(replicas);
+        TransactionTemplate transactions = transactions(routing);
+        routing.checkReplicas();
+        assertTrue(routing.isHealthy("replica-1"));
+
+        down.set(true);
+        for (int i = 0; i < 4; i++) assertEquals("replica", currentTarget(transactions, true));
+        assertFalse(routing.isHealthy("replica-1"));
+        assertTrue(routing.isHealthy("replica-0"));
+        assertEquals(0, meterRegistry.counter("libapi.datasource.connections", "target", "primary", "route", "fallback").count());
+    }
+
+    private ReplicaRoutingDataSource routing(Map<String, DataSource> replicas) {
+        return new ReplicaRoutingDataSource(primary.getDataSource(), replicas, Duration.ofSeconds(5),
+                "select seconds from replication_lag", meterRegistry);
+    }
+
+    private static TransactionTemplate transactions(ReplicaRoutingDataSource routing) {
+        return new TransactionTemplate(new DataSourceTransactionManager(new LazyConnectionDataSourceProxy(routing)));
+    }
+
+    private static String currentTarget(TransactionTemplate transactions, boolean readOnly) {
+        transactions.setReadOnly(readOnly);
+        return transactions.execute(status -> {
+            DataSourceTransactionManager manager = (DataSourceTransactionManager) transactions.getTransactionManager();
+            return new JdbcTemplate(manager.getDataSource()).queryForObject("select name from target", String.class);
+        });
+    }
+
+    private static DataSource h2(String name) {
+        JdbcDataSource dataSource = new JdbcDataSource();
+        dataSource.setURL("jdbc:h2:mem:" + name + ";DB_CLOSE_DELAY=-1");
+        return dataSource;
+    }
+}
@@ -0,0 +1,77 @@
+package su.ezhidze.libapi.index;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CatalogCountersTests {
+
+    @Test
+    void changesMoveCountsBetweenBuckets() {
+        CatalogCounters counters = new CatalogCounters();
+        counters.add(new CatalogCounters.BookFacts(2001, 150, 10L, new long[]{100, 101}));
+        counters.add(new CatalogCounters.BookFacts(2001, 2500, null));
+        assertEquals(2, counters.booksInYear(2001));
+        assertEquals(1, counters.booksOfPublisher(10));
+        assertEquals(2650, counters.pages());
+
+        counters.change(new CatalogCounters.BookFacts(2001, 150, null), new CatalogCounters.BookFacts(2002, 150, null));
+        assertEquals(Map.of(2001L, 1L, 2002L, 1L), counters.booksByYear());
+        counters.attach(10);
+        assertEquals(2, counters.booksOfPublisher(10));
+        counters.unlink(101);
+        assertEquals(0, counters.booksOfAuthor(101));
+        assertFalse(counters.booksByAuthor().containsKey(101L));
+
+        long[] buckets = counters.pageCountBuckets();
+        assertEquals(1, buckets[1]);
+        assertEquals(1, buckets[CatalogCounters.PAGE_BUCKETS - 1]);
+
+        counters.remove(new CatalogCounters.BookFacts(2001, 2500, 10L));
+        assertEquals(1, counters.books());
+        assertEquals(1, counters.booksOfPublisher(10));
+    }
+
+    @Test
+    void changesApplyInAnyOrder() {
+        CatalogCounters inOrder = new CatalogCounters();
+        CatalogCounters reordered = new CatalogCounters();
+        CatalogCounters.BookFacts created = new CatalogCounters.BookFacts(1999, 300, null, new long[]{7});
+
+        inOrder.add(created);
+        inOrder.link(8);
+        inOrder.change(new CatalogCounters.BookFacts(1999, 300, null), new CatalogCounters.BookFacts(1980, 300, null));
+        inOrder.unlink(7);
+
+        reordered.unlink(7);
+        reordered.change(new CatalogCounters.BookFacts(1999, 300, null), new CatalogCounters.BookFacts(1980, 300, null));
+        reordered.add(created);
+        reordered.link(8);
+
+        assertEquals(Map.of(1980L, 1L), inOrder.booksByYear());
+        assertEquals(Map.of(8L, 1L), inOrder.booksByAuthor());
+        assertEquals(inOrder.booksByYear(), reordered.booksByYear());
+        assertEquals(inOrder.booksByAuthor(), reordered.booksByAuthor());
+        assertEquals(inOrder.pages(), reordered.pages());
+    }
+
+    @Test
+    void removedAuthorIsNotRecreatedByLaterChanges() {
+        CatalogCounters counters = new CatalogCounters();
+        CatalogCounters.BookFacts book = new CatalogCounters.BookFacts(2010, 90, 3L, new long[]{5});
+        counters.add(book);
+        counters.removeAuthor(5);
+        counters.removePublisher(3);
+        counters.link(5);
+        counters.attach(3);
+        counters.add(new CatalogCounters.BookFacts(2011, 90, 3L, new long[]{5}));
+        assertTrue(counters.booksByAuthor().isEmpty());
+        assertTrue(counters.booksByPublisher().isEmpty());
+
+        counters.remove(book);
+        assertEquals(1, counters.books());
+        assertTrue(counters.booksByAuthor().isEmpty());
+    }
+}
@@ -0,0 +1,57 @@
+package su.ezhidze.libapi.index;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class InvertedIndexTests {
+
+    @Test
+    void ranksDocumentsWithMoreMatchingTermsHigher() {
+        InvertedIndex index = new InvertedIndex();
+        index.put(1, "The Art of Computer Programming");
+        index.put(2, "Computer Networks");
+        index.put(3, "Gardening for beginners");
+        List<InvertedIndex.Hit> hits = index.search("computer programming", 10);
+        assertEquals(2, hits.size());
+        assertEquals(1, hits.get(0).getKey());
+        assertEquals(2, hits.get(1).getKey());
+    }
+
+    @Test
+    void putReplacesAndRemoveDropsDocuments() {
+        InvertedIndex index = new InvertedIndex();
+        index.put(1, "Old title");
+        index.put(1, "New title");
+        assertTrue(index.search("old", 10).isEmpty());
+        assertEquals(1, index.search("NEW", 10).size());
+        index.remove(1);
+        assertTrue(index.search("new", 10).isEmpty());
+        assertEquals(0, index.size());
+    }
+
+    @Test
+    void compactionKeepsLiveDocumentsSearchable() {
+        InvertedIndex index = new InvertedIndex();
+        for (int i = 0; i < 5000; i++) index.put(i, "common term" + i);
+        for (int i = 0; i < 4990; i++) index.remove(i);
+        assertEquals(10, index.size());
+        assertEquals(10, index.search("common", 100).size());
+        assertEquals(4995, index.search("term4995", 1).get(0).getKey());
+    }
+
+    @Test
+    void repeatedUpdatesKeepDocumentSlotsBounded() {
+        InvertedIndex index = new InvertedIndex();
+        for (int round = 0; round < 100; round++) {
+            for (int key = 0; key < 100; key++) index.put(key, "book" + key + " revision" + round);
+        }
+        assertEquals(100, index.size());
+        assertTrue(index.slots() <= 2 * 1025, "slots " + index.slots());
+        assertEquals(100, index.search("revision99", 1000).size());
+        assertTrue(index.search("revision0", 1000).isEmpty());
+        assertEquals(7, index.search("book7", 10).get(0).getKey());
+    }
+}
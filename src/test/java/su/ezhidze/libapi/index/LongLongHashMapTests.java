@@ -0,0 +1,32 @@
+package su.ezhidze.libapi.index;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LongLongHashMapTests {
+
+    @Test
+    void putGetAndRemoveAcrossResizes() {
+        LongLongHashMap map = new LongLongHashMap();
+        for (long key = 1; key <= 10000; key++) map.put(9780000000000L + key, key);
+        assertEquals(10000, map.size());
+        for (long key = 1; key <= 10000; key += 2) assertTrue(map.remove(9780000000000L + key, key));
+        assertEquals(5000, map.size());
+        for (long key = 1; key <= 10000; key++) {
+            assertEquals(key % 2 == 0 ? key : LongLongHashMap.MISSING, map.get(9780000000000L + key));
+        }
+    }
+
+    @Test
+    void removeOnlyMatchingValue() {
+        LongLongHashMap map = new LongLongHashMap();
+        map.put(42, 1);
+        map.put(42, 2);
+        assertFalse(map.remove(42, 1));
+        assertEquals(2, map.get(42));
+        assertTrue(map.remove(42, 2));
+        assertEquals(LongLongHashMap.MISSING, map.get(42));
+        assertThrows(IllegalArgumentException.class, () -> map.put(0, 1));
+    }
+}
@@ -0,0 +1,61 @@
+package su.ezhidze.libapi.index;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PrefixIndexTests {
+
+    @Test
+    void suggestsCaseInsensitivePrefixMatchesInOrder() {
+        PrefixIndex index = new PrefixIndex();
+        index.rebuild(List.of(new PrefixIndex.Entry(1, "Tolkien"), new PrefixIndex.Entry(2, "tolstoy"),
+                new PrefixIndex.Entry(3, "Twain"), new PrefixIndex.Entry(4, "Pratchett")));
+        List<PrefixIndex.Entry> suggestions = index.suggest("TOL", 10);
+        assertEquals(List.of(1L, 2L), suggestions.stream().map(PrefixIndex.Entry::getId).toList());
+        assertEquals(1, index.suggest("t", 1).size());
+        assertTrue(index.suggest("x", 10).isEmpty());
+    }
+
+    @Test
+    void putAndRemoveKeepOrder() {
+        PrefixIndex index = new PrefixIndex();
+        for (int i = 0; i < 100; i++) index.put(i, "name" + (99 - i));
+        index.put(5, "aaa");
+        index.remove(7);
+        assertEquals(99, index.size());
+        assertEquals(5, index.suggest("a", 10).get(0).getId());
+        List<PrefixIndex.Entry> names = index.suggest("name", 100);
+        assertEquals(98, names.size());
+        for (int i = 1; i < names.size(); i++) {
+            assertTrue(String.CASE_INSENSITIVE_ORDER.compare(names.get(i - 1).getName(), names.get(i).getName()) <= 0);
+        }
+    }
+
+    @Test
+    void removeFindsEntryAmongEqualNames() {
+        PrefixIndex index = new PrefixIndex();
+        index.rebuild(List.of(new PrefixIndex.Entry(3, "Same"), new PrefixIndex.Entry(1, "same"), new PrefixIndex.Entry(2, "SAME")));
+        index.remove(2);
+        index.put(1, "same");
+        assertEquals(List.of(1L, 3L), index.suggest("sa", 10).stream().map(PrefixIndex.Entry::getId).toList());
+        index.put(3, "other");
+        index.remove(4);
+        assertEquals(List.of(1L), index.suggest("sa", 10).stream().map(PrefixIndex.Entry::getId).toList());
+        assertEquals(2, index.size());
+    }
+
+    @Test
+    void writesFindEntriesPutInAnyIdOrder() {
+        PrefixIndex index = new PrefixIndex();
+        for (int i = 40; i > 0; i--) index.put(i, "author" + i);
+        for (int i = 1; i <= 40; i += 2) index.remove(i);
+        for (int i = 2; i <= 40; i += 4) index.put(i, "renamed" + i);
+        assertEquals(20, index.size());
+        assertEquals(10, index.suggest("author", 100).size());
+        assertEquals(10, index.suggest("renamed", 100).size());
+        assertEquals(List.of(8L), index.suggest("author8", 100).stream().map(PrefixIndex.Entry::getId).toList());
+    }
+}
@@ -0,0 +1,36 @@
+package su.ezhidze.libapi.metrics;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SqlTraceTests {
+
+    @Test
+    void nestedWindowsReportToParent() {
+        StatementCounter inspector = new StatementCounter();
+        SqlTrace outer = StatementCounter.begin(true);
+        inspector.inspect("select 1");
+        StatementCounter.begin();
+        inspector.inspect("select 2");
+        assertEquals(1, StatementCounter.end().getCount());
+        assertSame(outer, StatementCounter.end());
+        assertEquals(2, outer.getCount());
+        assertEquals(2, outer.getStatements().size());
+        inspector.inspect("select 3");
+        assertEquals(2, outer.getCount());
+    }
+
+    @Test
+    void repeatedShapesIgnoreLiteralsAndInListLength() {
+        SqlTrace trace = new SqlTrace(null, true);
+        for (int id = 0; id < 5; id++) trace.add("select a.id from authors a where a.id=" + id);
+        trace.add("select b.id from books b where b.id in (?, ?)");
+        trace.add("select b.id from books b where b.id in (?,?,?)");
+        Map<String, Integer> repeated = trace.repeatedShapes(2);
+        assertEquals(Map.of("select a.id from authors a where a.id=?", 5,
+                "select b.id from books b where b.id in (?)", 2), repeated);
+    }
+}
@@ -0,0 +1,26 @@
+package su.ezhidze.libapi.util;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class IsbnTests {
+
+    @Test
+    void normalizesIsbn10AndIsbn13ToSameValue() {
+        assertEquals(9780134685991L, Isbn.toIsbn13("978-0-13-468599-1"));
+        assertEquals(9780134685991L, Isbn.toIsbn13("9780134685991"));
+        assertEquals(9780134685991L, Isbn.toIsbn13("0-13-468599-7"));
+        assertEquals(9780306406157L, Isbn.toIsbn13("0 306 40615 2"));
+        assertEquals(9780807014295L, Isbn.toIsbn13("080701429X"));
+    }
+
+    @Test
+    void rejectsInvalidIsbns() {
+        assertNull(Isbn.toIsbn13(null));
+        assertNull(Isbn.toIsbn13("test-isbn"));
+        assertNull(Isbn.toIsbn13("9780134685992"));
+        assertNull(Isbn.toIsbn13("0134685998"));
+        assertNull(Isbn.toIsbn13("X134685997"));
+    }
+}